@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 import org.apache.commons.io.FileUtils;
@@ -64,17 +65,29 @@ public abstract class Verifier {
    */
   protected abstract String getExecutable();
 
+  /**
+   * Returns a file in the working directory of this Verifier, e.g. to modify a source file between two executions.
+   *
+   * @param fileName The name of the file relative to the working directory.
+   * @return The file.
+   */
+  public File getFile(String fileName) {
+    return new File(baseDirectory, fileName);
+  }
+
   /**
    * Executes the given action with this Verifier.
    *
    * @param action The action to execute (e.g. a Maven goal or Gradle task).
+   * @param arguments Additional command line arguments for this execution only.
    * @return The return code of the execution.
    * @throws VerifierException If the execution failed.
    */
-  public int execute(String action) throws VerifierException {
+  public int execute(String action, String... arguments) throws VerifierException {
     List<String> commands = new ArrayList<>();
     commands.add(getExecutable());
     commands.addAll(options.getCommandLineArguments());
+    commands.addAll(Arrays.asList(arguments));
     commands.add(action);
     ProcessExecutor executor = new ProcessExecutor(commands);
     if (options.getWorkingDirectory() != null) {
@@ -105,6 +118,19 @@ public abstract class Verifier {
     }
   }
 
+  /**
+   * Verifies that the given file does not exist.
+   *
+   * @param fileName The name of the file to check.
+   * @throws VerifierException If the file exists.
+   */
+  public void assertFileNotPresent(String fileName) throws VerifierException {
+    File unexpectedFile = new File(baseDirectory, fileName);
+    if (unexpectedFile.exists()) {
+      throw new VerifierException(String.format("Unexpected file '%s' found", fileName));
+    }
+  }
+
   /**
    * Verifies that the log contains the given text.
    *
@@ -112,6 +138,24 @@ public abstract class Verifier {
    * @throws VerifierException If the log does not contain the text.
    */
   public void assertLogContainsText(String text) throws VerifierException {
+    if (!logContainsText(text)) {
+      throw new VerifierException(String.format("Text '%s' not found in log %s", text, new File(baseDirectory, LOG_FILENAME).getAbsolutePath()));
+    }
+  }
+
+  /**
+   * Verifies that the log does not contain the given text.
+   *
+   * @param text The text to check.
+   * @throws VerifierException If the log contains the text.
+   */
+  public void assertLogNotContainsText(String text) throws VerifierException {
+    if (logContainsText(text)) {
+      throw new VerifierException(String.format("Unexpected text '%s' found in log %s", text, new File(baseDirectory, LOG_FILENAME).getAbsolutePath()));
+    }
+  }
+
+  private boolean logContainsText(String text) throws VerifierException {
     File logFile = new File(baseDirectory, LOG_FILENAME);
     List<String> lines = null;
     try {
@@ -119,16 +163,12 @@ public abstract class Verifier {
     } catch (IOException e) {
       throw new VerifierException(String.format("Could not read log file %s", logFile.getAbsolutePath()), e);
     }
-    boolean result = false;
     for (String line : lines) {
       if (line.contains(text)) {
-        result = true;
-        break;
+        return true;
       }
     }
-    if (!result) {
-      throw new VerifierException(String.format("Text '%s' not found in log %s", text, logFile.getAbsolutePath()));
-    }
+    return false;
   }
 
   /**
@@ -17,6 +17,7 @@
 package io.mathan.latex.core;
 
 import java.io.File;
+import java.util.List;
 import org.zeroturnaround.exec.stream.LogOutputStream;
 
 /**
@@ -60,11 +61,26 @@ public interface Build {
   void setArtifact(File artifact);
 
   /**
-   * Resolves required dependencies for the project.
+   * Attaches the given artifact with the given classifier to the build. (e.g. one of multiple documents built)
    *
-   * @param workingDirectory The working directory.
+   * @param artifact The artifact to attach.
+   * @param classifier The classifier of the artifact.
    */
-  void resolveDependencies(File workingDirectory) throws LatexExecutionException;
+  void attachArtifact(File artifact, String classifier);
+
+  /**
+   * Returns the filter for the resources to include from the archives of the dependencies.
+   *
+   * @return The filter.
+   */
+  ResourceFilter getResourceFilter();
+
+  /**
+   * Returns the archives of the dependencies of the project.
+   *
+   * @return The resolved archives in the order of the declaration of the dependencies.
+   */
+  List<File> getDependencyArchives() throws LatexExecutionException;
 
   /**
    * Returns a LogOutputStream for debug output to use for executions by the build system.
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Fingerprint of all inputs of a build. The fingerprint is calculated from the content of files and from configuration values. If two builds have the same fingerprint, they produce the same output.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class BuildFingerprint {
+
+  private final StringBuilder content = new StringBuilder();
+
+  /**
+   * Adds a configuration value to the fingerprint.
+   *
+   * @param key The name of the value.
+   * @param value The value.
+   * @return This fingerprint.
+   */
+  BuildFingerprint add(String key, Object value) {
+    content.append(key).append('=').append(value).append('\n');
+    return this;
+  }
+
+  /**
+   * Adds the content of a single file to the fingerprint.
+   *
+   * @param key The name of the file in the fingerprint.
+   * @param file The file.
+   * @return This fingerprint.
+   * @throws LatexExecutionException If the file could not be read.
+   */
+  BuildFingerprint addFile(String key, File file) throws LatexExecutionException {
+    try {
+      return add(key, Utils.checksum(file));
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not read file %s", file.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Adds the content of all files of a directory tree to the fingerprint. The files are identified by their path relative to the directory.
+   *
+   * @param key The name of the directory in the fingerprint.
+   * @param directory The directory.
+   * @return This fingerprint.
+   * @throws LatexExecutionException If a file could not be read.
+   */
+  BuildFingerprint addDirectory(String key, File directory) throws LatexExecutionException {
+    List<String> paths = new ArrayList<>();
+    for (File file : FileUtils.listFiles(directory, null, true)) {
+      paths.add(directory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+    }
+    Collections.sort(paths);
+    for (String path : paths) {
+      addFile(key + ":" + path, new File(directory, path));
+    }
+    return this;
+  }
+
+  /**
+   * Adds the identity of an executable to the fingerprint. Instead of starting the executable to query its version the {@link Utils#getIdentity(File) location, size and checksum} of the
+   * executable are used.
+   *
+   * @param key The name of the executable in the fingerprint.
+   * @param executable The executable.
+   * @return This fingerprint.
+   * @throws LatexExecutionException If the executable could not be read.
+   */
+  BuildFingerprint addExecutable(String key, File executable) throws LatexExecutionException {
+    try {
+      return add(key, Utils.getIdentity(executable));
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not read file %s", executable.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Returns the value of this fingerprint.
+   *
+   * @return The SHA-256 checksum of all values added.
+   */
+  String getValue() {
+    return Utils.checksum(content.toString());
+  }
+
+  /**
+   * Checks if this fingerprint matches the fingerprint stored in the given file.
+   *
+   * @param file The file containing a stored fingerprint.
+   * @return <code>true</code> if the file exists and contains the same fingerprint.
+   */
+  boolean matches(File file) {
+    if (!file.exists()) {
+      return false;
+    }
+    try {
+      return getValue().equals(FileUtils.readFileToString(file, StandardCharsets.UTF_8).trim());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Stores this fingerprint in the given file.
+   *
+   * @param file The file to store the fingerprint in.
+   * @throws IOException If the file could not be written.
+   */
+  void store(File file) throws IOException {
+    FileUtils.writeStringToFile(file, getValue(), StandardCharsets.UTF_8);
+  }
+}
@@ -21,6 +21,8 @@ package io.mathan.latex.core;
  */
 public interface BuildLog {
 
+  void debug(String message);
+
   void error(String message);
 
   void error(String message, Exception ex);
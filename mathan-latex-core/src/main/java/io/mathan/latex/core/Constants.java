@@ -25,6 +25,11 @@ public class Constants {
    * Identifier used as placeholder for the exeution of the latex tools to produce the output documment.
    */
   public static final String LaTeX = "LaTeX";
+
+  /**
+   * The default working directory relative to the project directory.
+   */
+  public static final String WORKING_DIRECTORY = "target/latex";
   public static final String FORMAT_DVI = "dvi";
   public static final String FORMAT_PDF = "pdf";
   public static final String FORMAT_PS = "ps";
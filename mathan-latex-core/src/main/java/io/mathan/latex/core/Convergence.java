@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * Tracks the auxiliary files written by the LaTeX passes of a build to detect when the document has reached a fixed point. A document has converged if a LaTeX pass did not change any auxiliary
+ * file, the log does not contain a rerun hint and no other step changed an auxiliary file since that pass.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class Convergence {
+
+  /**
+   * File extensions of the auxiliary files which are read by a LaTeX pass and which may change the output of the next pass.
+   */
+  private static final String[] AUXILIARY_EXTENSIONS = {
+      Constants.FORMAT_AUX, "toc", "lof", "lot", "out", "nav", Constants.FORMAT_BBL, "ind", Constants.FORMAT_NLS};
+
+  /**
+   * Patterns of messages in the LaTeX log requesting another LaTeX pass.
+   */
+  private static final List<Pattern> RERUN_HINTS = Arrays.asList(
+      Pattern.compile("Rerun to get"),
+      Pattern.compile("Label\\(s\\) may have changed"),
+      Pattern.compile("Please rerun LaTeX"),
+      Pattern.compile("Rerun LaTeX"));
+
+  private final File workingDirectory;
+  private final String pureName;
+
+  private Map<String, String> inputs;
+  private Map<String, String> outputs;
+  private boolean rerunRequested;
+
+  Convergence(File workingDirectory, String pureName) {
+    this.workingDirectory = workingDirectory;
+    this.pureName = pureName;
+  }
+
+  /**
+   * Records the state of the auxiliary files before a LaTeX pass is executed.
+   *
+   * @throws LatexExecutionException If an auxiliary file could not be read.
+   */
+  void beforePass() throws LatexExecutionException {
+    inputs = fingerprint();
+  }
+
+  /**
+   * Records the state of the auxiliary files after a LaTeX pass was executed and scans the log of the pass for rerun hints.
+   *
+   * @param log The log file written by the LaTeX pass.
+   * @throws LatexExecutionException If an auxiliary file or the log could not be read.
+   */
+  void afterPass(File log) throws LatexExecutionException {
+    outputs = fingerprint();
+    rerunRequested = containsRerunHint(log);
+  }
+
+  /**
+   * Returns whether another LaTeX pass would not change the document any more.
+   *
+   * @return <code>true</code> if the document has converged.
+   * @throws LatexExecutionException If an auxiliary file could not be read.
+   */
+  boolean isConverged() throws LatexExecutionException {
+    return outputs != null && !rerunRequested && outputs.equals(inputs) && outputs.equals(fingerprint());
+  }
+
+  private Map<String, String> fingerprint() throws LatexExecutionException {
+    Map<String, String> fingerprint = new TreeMap<>();
+    Collection<File> files = FileUtils.listFiles(workingDirectory, AUXILIARY_EXTENSIONS, true);
+    for (File file : files) {
+      // auxiliary files of included documents only exist as .aux files
+      if (FilenameUtils.getBaseName(file.getName()).equals(pureName) || file.getName().endsWith("." + Constants.FORMAT_AUX)) {
+        try {
+          fingerprint.put(file.getAbsolutePath(), Utils.checksum(file));
+        } catch (IOException e) {
+          throw new LatexExecutionException(String.format("Could not read auxiliary file %s", file.getAbsolutePath()), e);
+        }
+      }
+    }
+    return fingerprint;
+  }
+
+  private boolean containsRerunHint(File log) throws LatexExecutionException {
+    if (!log.exists()) {
+      return false;
+    }
+    try {
+      for (String line : FileUtils.readLines(log, StandardCharsets.ISO_8859_1)) {
+        if (RERUN_HINTS.stream().anyMatch(hint -> hint.matcher(line).find())) {
+          return true;
+        }
+      }
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not read log file %s", log.getAbsolutePath()), e);
+    }
+    return false;
+  }
+}
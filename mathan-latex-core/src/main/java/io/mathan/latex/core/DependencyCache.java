@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache for the extracted resources of dependency archives shared by all builds on a host. An entry is identified by the SHA-256 checksum of the archive and the resource filter, so a changed
+ * SNAPSHOT archive results in a new entry. The resources are provided in the working directory with hard links if possible, otherwise they are copied.
+ *
+ * <p>The least recently used entries are removed as soon as the cache exceeds its maximum size. Each entry is locked on its own, so builds only wait for each other if they use the same entry.
+ * Builds in different processes are synchronized with a lock file of the entry, builds in the same process with a lock of the entry. Providing resources from an existing entry only requires a
+ * shared lock of the lock file. An entry in use by another build is not removed.</p>
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class DependencyCache {
+
+  /**
+   * Locks of the entries by their key for builds in the same process. Java does not allow overlapping file locks within one process, not even shared ones.
+   */
+  private static final Map<String, Lock> LOCKS = new ConcurrentHashMap<>();
+  private static final String LOCKS_DIRECTORY = "locks";
+  private static final String CONTENT = "content";
+  private static final String ENTRIES_FILE = "entries";
+  private static final String CHECKSUMS = "checksums";
+  /**
+   * The time in milliseconds after which a temporary directory of an extraction is considered to be left behind.
+   */
+  private static final long STALE_TIME = 24 * 60 * 60 * 1000L;
+
+  private final File directory;
+  private final long maxSize;
+  private final BuildLog log;
+
+  /**
+   * Creates a cache in the given directory.
+   *
+   * @param directory The directory of the cache.
+   * @param maxSize The maximum size of the cache in bytes.
+   * @param log The log to report cache hits to.
+   */
+  DependencyCache(File directory, long maxSize, BuildLog log) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.log = log;
+  }
+
+  /**
+   * Provides the resources of the given archive matching the given filter in the given directory. If the archive is not cached yet, it is extracted into the cache first.
+   *
+   * @param archive The archive of the dependency.
+   * @param filter The filter for the resources.
+   * @param workingDirectory The directory to provide the resources in.
+   * @param skipped The paths not to provide. (e.g. because they are provided by another archive)
+   * @return The paths of the provided resources relative to the working directory.
+   * @throws IOException If the archive could not be extracted or the resources could not be provided.
+   */
+  List<String> materialize(File archive, ResourceFilter filter, File workingDirectory, Set<String> skipped) throws IOException {
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Could not create directory " + directory.getAbsolutePath());
+    }
+    String key = Utils.checksum(getChecksum(archive, directory) + "\n" + filter);
+    File entry = new File(directory, key);
+    try (Locked ignored = lock(key, true, true)) {
+      if (new File(entry, ENTRIES_FILE).exists()) {
+        log.info(String.format("[mathan] dependency cache hit: %s", archive.getName()));
+        return link(entry, workingDirectory, skipped);
+      }
+    }
+    // extract without holding the lock, so other builds are not blocked
+    File temporary = new File(directory, key + "." + UUID.randomUUID() + ".tmp");
+    try {
+      List<String> paths = Utils.extractArchive(archive, new File(temporary, CONTENT), filter);
+      FileUtils.writeLines(new File(temporary, ENTRIES_FILE), StandardCharsets.UTF_8.name(), paths, "\n");
+      List<String> linked;
+      try (Locked ignored = lock(key, false, true)) {
+        if (!new File(entry, ENTRIES_FILE).exists()) {
+          FileUtils.deleteDirectory(entry);
+          Files.move(temporary.toPath(), entry.toPath());
+        }
+        linked = link(entry, workingDirectory, skipped);
+      }
+      evict(key);
+      return linked;
+    } finally {
+      FileUtils.deleteQuietly(temporary);
+    }
+  }
+
+  /**
+   * Returns the checksum of the given archive. The checksum of a released archive is only calculated again if its size or modification time changed. The checksum of a SNAPSHOT archive is always
+   * calculated, as it may be replaced by a different archive at any time.
+   *
+   * @param archive The archive.
+   * @param directory The directory of the cache storing the checksums.
+   * @return The checksum of the archive.
+   * @throws IOException If the archive could not be read or the checksum could not be stored.
+   */
+  static String getChecksum(File archive, File directory) throws IOException {
+    if (archive.getName().contains("SNAPSHOT")) {
+      return Utils.checksum(archive);
+    }
+    File checksumFile = new File(new File(directory, CHECKSUMS), Utils.checksum(archive.getAbsolutePath()));
+    String stamp = archive.length() + "\t" + archive.lastModified() + "\t";
+    if (checksumFile.exists()) {
+      String content = FileUtils.readFileToString(checksumFile, StandardCharsets.UTF_8);
+      if (content.startsWith(stamp)) {
+        return content.substring(stamp.length()).trim();
+      }
+    }
+    String checksum = Utils.checksum(archive);
+    File temporary = new File(checksumFile.getParentFile(), checksumFile.getName() + "." + UUID.randomUUID() + ".tmp");
+    FileUtils.writeStringToFile(temporary, stamp + checksum, StandardCharsets.UTF_8);
+    Files.move(temporary.toPath(), checksumFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    return checksum;
+  }
+
+  /**
+   * Provides the content of the given entry in the working directory and marks the entry as used.
+   */
+  private static List<String> link(File entry, File workingDirectory, Set<String> skipped) throws IOException {
+    List<String> paths = FileUtils.readLines(new File(entry, ENTRIES_FILE), StandardCharsets.UTF_8);
+    paths.removeAll(skipped);
+    Path content = new File(entry, CONTENT).toPath();
+    Path root = workingDirectory.toPath();
+    for (String path : paths) {
+      Path source = content.resolve(path);
+      Path target = root.resolve(path);
+      Files.createDirectories(target.getParent());
+      Files.deleteIfExists(target);
+      try {
+        Files.createLink(target, source);
+      } catch (IOException | UnsupportedOperationException e) {
+        Files.copy(source, target);
+      }
+    }
+    Files.setLastModifiedTime(new File(entry, ENTRIES_FILE).toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+    return paths;
+  }
+
+  /**
+   * Removes the least recently used entries until the cache does not exceed its maximum size. The given entry and entries locked by other builds are never removed.
+   */
+  private void evict(String current) throws IOException {
+    List<File> entries = new ArrayList<>();
+    long size = 0;
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File entry : files) {
+      if (new File(entry, ENTRIES_FILE).exists()) {
+        entries.add(entry);
+        size += sizeOf(entry);
+      } else if (entry.getName().endsWith(".tmp") && entry.lastModified() < System.currentTimeMillis() - STALE_TIME) {
+        // left behind by a build which was killed during extraction
+        FileUtils.deleteQuietly(entry);
+      }
+    }
+    entries.sort(Comparator.comparingLong(entry -> new File(entry, ENTRIES_FILE).lastModified()));
+    for (File entry : entries) {
+      if (size <= maxSize) {
+        break;
+      }
+      if (!entry.getName().equals(current)) {
+        try (Locked locked = lock(entry.getName(), false, false)) {
+          if (locked != null) {
+            size -= sizeOf(entry);
+            FileUtils.deleteDirectory(entry);
+          }
+        }
+      }
+    }
+  }
+
+  private static long sizeOf(File entry) {
+    File content = new File(entry, CONTENT);
+    return content.exists() ? FileUtils.sizeOfDirectory(content) : 0;
+  }
+
+  /**
+   * Acquires the lock of the given entry within this process and the lock file of the entry for other processes.
+   *
+   * @param key The key of the entry.
+   * @param shared <code>true</code> for a shared lock, <code>false</code> for an exclusive lock.
+   * @param wait <code>true</code> to wait for the lock, <code>false</code> to give up if the entry is locked by another build.
+   * @return The lock or <code>null</code> if the entry is locked by another build and <code>wait</code> is <code>false</code>.
+   */
+  private Locked lock(String key, boolean shared, boolean wait) throws IOException {
+    Lock lock = LOCKS.computeIfAbsent(key, k -> new ReentrantLock());
+    if (wait) {
+      lock.lock();
+    } else if (!lock.tryLock()) {
+      return null;
+    }
+    try {
+      File lockDirectory = new File(directory, LOCKS_DIRECTORY);
+      if (!lockDirectory.exists() && !lockDirectory.mkdirs()) {
+        throw new IOException("Could not create directory " + lockDirectory.getAbsolutePath());
+      }
+      FileChannel channel = FileChannel.open(new File(lockDirectory, key).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        FileLock fileLock = wait ? channel.lock(0, Long.MAX_VALUE, shared) : channel.tryLock(0, Long.MAX_VALUE, shared);
+        if (fileLock != null) {
+          return () -> {
+            try {
+              fileLock.release();
+              channel.close();
+            } finally {
+              lock.unlock();
+            }
+          };
+        }
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+      channel.close();
+    } catch (IOException | RuntimeException e) {
+      lock.unlock();
+      throw e;
+    }
+    lock.unlock();
+    return null;
+  }
+
+  /**
+   * A lock which is released on close.
+   */
+  private interface Locked extends AutoCloseable {
+
+    @Override
+    void close() throws IOException;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.zeroturnaround.exec.stream.LogOutputStream;
+
+/**
+ * Parses the output of a LaTeX pass while it is running. TeX reports every error with a line starting with "! " followed by the context of the error. As soon as the configured number of errors is
+ * reached, the process is destroyed instead of waiting for the engine to work through the rest of the document.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class ErrorMonitor extends LogOutputStream {
+
+  /**
+   * The maximum number of context lines recorded after an error line.
+   */
+  private static final int CONTEXT_LINES = 4;
+
+  private final int maxErrors;
+  private final List<String> context = new ArrayList<>();
+  private int errors;
+  private int remainingContextLines;
+  private boolean aborted;
+  private Process process;
+
+  /**
+   * Creates a monitor destroying the process when the given number of errors is reached.
+   *
+   * @param maxErrors The number of errors to abort the process at.
+   */
+  ErrorMonitor(int maxErrors) {
+    this.maxErrors = maxErrors;
+  }
+
+  /**
+   * Attaches the monitored process. If the number of errors was already reached, the process is destroyed immediately.
+   *
+   * @param process The process writing the output.
+   */
+  synchronized void attach(Process process) {
+    this.process = process;
+    if (aborted) {
+      process.destroyForcibly();
+    }
+  }
+
+  @Override
+  protected synchronized void processLine(String line) {
+    if (aborted && remainingContextLines == 0) {
+      return;
+    }
+    if (line.startsWith("! ")) {
+      errors++;
+      context.add(line);
+      remainingContextLines = CONTEXT_LINES;
+    } else if (remainingContextLines > 0) {
+      context.add(line);
+      remainingContextLines--;
+      if (line.startsWith("l.")) {
+        remainingContextLines = 0;
+      }
+    }
+    if (!aborted && errors >= maxErrors && remainingContextLines == 0) {
+      aborted = true;
+      if (process != null) {
+        process.destroyForcibly();
+      }
+    }
+  }
+
+  /**
+   * Returns whether the process was destroyed because the number of errors was reached.
+   *
+   * @return <code>true</code> if the process was aborted.
+   */
+  synchronized boolean isAborted() {
+    return aborted;
+  }
+
+  /**
+   * Returns the number of errors detected.
+   *
+   * @return The number of errors.
+   */
+  synchronized int getErrors() {
+    return errors;
+  }
+
+  /**
+   * Returns the error lines and their context as reported by TeX.
+   *
+   * @return The context of the errors detected.
+   */
+  synchronized String getContext() {
+    return String.join("\n", context);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache for format files containing the precompiled preamble of a LaTeX source document. The format is dumped with the -ini mode of the engine and mylatexformat. The dump is recorded with the
+ * option -recorder and the format is cached with a checksum of the preamble and the engine and with an {@link InputManifest} of all files read by the dump (e.g. local packages, classes or files
+ * extracted from dependencies). It is only dumped again if one of them changes.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class FormatCache {
+
+  /**
+   * Names of the engines supporting precompiled formats.
+   */
+  private static final List<String> ENGINES = Arrays.asList(Step.STEP_LATEX.getName(), Step.STEP_PDFLATEX.getName(), Step.STEP_XELATEX.getName());
+  private static final String INPUTS_FILE = "inputs";
+  private static final String BEGIN_DOCUMENT = "\\begin{document}";
+
+  private final File cacheDirectory;
+
+  FormatCache(File cacheDirectory) {
+    this.cacheDirectory = new File(cacheDirectory, "format");
+  }
+
+  /**
+   * Checks if a precompiled format can be used for the given step.
+   *
+   * @param step The step.
+   * @return <code>true</code> if the step is a LaTeX pass of an engine supporting precompiled formats.
+   */
+  static boolean supports(Step step) {
+    return step.isLatexPass() && ENGINES.contains(step.getName());
+  }
+
+  /**
+   * Returns the name of the format for the given step and document.
+   *
+   * @param step The step.
+   * @param texFile The LaTeX source document.
+   * @return The name of the format. (without file extension)
+   */
+  static String getFormatName(Step step, File texFile) {
+    String pureName = texFile.getName().substring(0, texFile.getName().lastIndexOf('.'));
+    return pureName + "-" + step.getName();
+  }
+
+  /**
+   * Returns the arguments to dump the preamble of the given document into a format file using mylatexformat.
+   *
+   * @param step The step.
+   * @param texFile The LaTeX source document.
+   * @return The arguments for the executable of the step.
+   */
+  static String getDumpArguments(Step step, File texFile) {
+    return String.format("-ini -recorder -interaction=nonstopmode -jobname=%s &%s mylatexformat.ltx %s", getFormatName(step, texFile), step.getName(), texFile.getName());
+  }
+
+  /**
+   * Calculates the checksum of the preamble of the given document and the engine used.
+   *
+   * @param texFile The LaTeX source document.
+   * @param executable The executable of the engine.
+   * @return The checksum or <code>null</code> if the document has no preamble.
+   * @throws LatexExecutionException If the document could not be read.
+   */
+  static String getChecksum(File texFile, File executable) throws LatexExecutionException {
+    String content;
+    try {
+      content = FileUtils.readFileToString(texFile, StandardCharsets.ISO_8859_1);
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not read %s", texFile.getAbsolutePath()), e);
+    }
+    int index = content.indexOf(BEGIN_DOCUMENT);
+    if (index < 0) {
+      return null;
+    }
+    return new BuildFingerprint().add("preamble", content.substring(0, index)).addExecutable("engine", executable).getValue();
+  }
+
+  /**
+   * Copies the cached format into the working directory if it was dumped for the same preamble and none of the files read by the dump changed.
+   *
+   * @param formatName The name of the format.
+   * @param checksum The checksum of the preamble.
+   * @param workingDirectory The working directory.
+   * @return <code>true</code> if the format was restored.
+   */
+  boolean restore(String formatName, String checksum, File workingDirectory) {
+    File directory = new File(cacheDirectory, formatName);
+    File cachedFormat = new File(directory, formatName + ".fmt");
+    try {
+      InputManifest manifest = InputManifest.read(new File(directory, INPUTS_FILE));
+      if (!cachedFormat.exists() || manifest == null || !manifest.isUpToDate(checksum)) {
+        return false;
+      }
+      File format = new File(workingDirectory, cachedFormat.getName());
+      Files.deleteIfExists(format.toPath());
+      FileUtils.copyFile(cachedFormat, format);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Stores the format dumped in the working directory in the cache together with the files read by the dump. The document itself is not recorded, as only its preamble is part of the checksum.
+   * Without a recording the format is never restored.
+   *
+   * @param formatName The name of the format.
+   * @param checksum The checksum of the preamble.
+   * @param workingDirectory The working directory.
+   * @param documents The locations of the LaTeX source document.
+   * @return <code>true</code> if the format was dumped and could be stored.
+   * @throws IOException If the format could not be stored.
+   */
+  boolean store(String formatName, String checksum, File workingDirectory, Collection<File> documents) throws IOException {
+    File format = new File(workingDirectory, formatName + ".fmt");
+    if (!format.exists()) {
+      return false;
+    }
+    Set<File> inputs = new LinkedHashSet<>();
+    File fls = new File(workingDirectory, formatName + ".fls");
+    if (fls.exists()) {
+      inputs.addAll(InputManifest.readRecording(fls));
+    }
+    for (File document : documents) {
+      inputs.remove(document.getAbsoluteFile().toPath().normalize().toFile());
+    }
+    File directory = new File(cacheDirectory, formatName);
+    FileUtils.copyFile(format, new File(directory, format.getName()));
+    InputManifest.record(checksum, inputs).store(new File(directory, INPUTS_FILE));
+    return true;
+  }
+}
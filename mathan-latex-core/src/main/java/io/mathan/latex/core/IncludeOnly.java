@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The checksums of the LaTeX source document and the files it includes with \include. Comparing them with the checksums of the last build shows which included files changed, so only these have to
+ * be compiled using \includeonly. The .aux files of the other included files are kept from the last build, so cross-references and page numbers stay valid.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class IncludeOnly {
+
+  private static final Pattern INCLUDE = Pattern.compile("\\\\include\\s*\\{([^}]+)\\}");
+  private static final String BEGIN_DOCUMENT = "\\begin{document}";
+
+  /**
+   * The checksums by the name of the file. The first entry is the LaTeX source document, the other entries are the included files in the order of their inclusion.
+   */
+  private final Map<String, String> checksums;
+
+  private IncludeOnly(Map<String, String> checksums) {
+    this.checksums = checksums;
+  }
+
+  /**
+   * Scans the given LaTeX source document for included files and calculates the checksums of the document and all included files.
+   *
+   * @param mainFile The LaTeX source document.
+   * @return The checksums.
+   * @throws IOException If a file could not be read.
+   */
+  static IncludeOnly scan(File mainFile) throws IOException {
+    Map<String, String> checksums = new LinkedHashMap<>();
+    checksums.put(mainFile.getName(), Utils.checksum(mainFile));
+    for (String line : FileUtils.readLines(mainFile, StandardCharsets.UTF_8)) {
+      Matcher matcher = INCLUDE.matcher(stripComment(line));
+      while (matcher.find()) {
+        String name = matcher.group(1).trim();
+        File include = new File(mainFile.getParentFile(), name.endsWith("." + Constants.FORMAT_TEX) ? name : name + "." + Constants.FORMAT_TEX);
+        checksums.put(name, include.isFile() ? Utils.checksum(include) : "");
+      }
+    }
+    return new IncludeOnly(checksums);
+  }
+
+  /**
+   * Reads the checksums stored by the last build.
+   *
+   * @param file The file the checksums are stored in.
+   * @return The checksums or <code>null</code> if there are no checksums.
+   * @throws IOException If the file could not be read.
+   */
+  static IncludeOnly read(File file) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    Map<String, String> checksums = new LinkedHashMap<>();
+    for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+      int index = line.lastIndexOf('\t');
+      if (index > 0) {
+        checksums.put(line.substring(0, index), line.substring(index + 1));
+      }
+    }
+    return new IncludeOnly(checksums);
+  }
+
+  /**
+   * Stores the checksums.
+   *
+   * @param file The file to store the checksums in.
+   * @throws IOException If the file could not be written.
+   */
+  void store(File file) throws IOException {
+    List<String> lines = new ArrayList<>();
+    checksums.forEach((name, checksum) -> lines.add(name + "\t" + checksum));
+    FileUtils.writeLines(file, StandardCharsets.UTF_8.name(), lines, "\n");
+  }
+
+  /**
+   * Returns the included files which changed since the given previous build. Only the included files can be compiled on their own: if the LaTeX source document itself, the list of included files
+   * or all of them changed, the whole document has to be compiled. The same applies if the .aux file of an included file is missing in the working directory.
+   *
+   * @param previous The checksums of the previous build.
+   * @param workingDirectory The working directory containing the .aux files of the previous build.
+   * @return The names of the changed included files or an empty list if the whole document has to be compiled.
+   */
+  List<String> getChanged(IncludeOnly previous, File workingDirectory) {
+    List<String> changed = new ArrayList<>();
+    if (previous == null || checksums.size() < 2 || !new ArrayList<>(checksums.keySet()).equals(new ArrayList<>(previous.checksums.keySet()))) {
+      return changed;
+    }
+    boolean first = true;
+    for (Map.Entry<String, String> entry : checksums.entrySet()) {
+      boolean modified = !entry.getValue().equals(previous.checksums.get(entry.getKey()));
+      if (first) {
+        if (modified) {
+          return changed;
+        }
+        first = false;
+      } else if (modified) {
+        changed.add(entry.getKey());
+      } else if (!new File(workingDirectory, entry.getKey().replaceAll("\\.tex$", "") + "." + Constants.FORMAT_AUX).exists()) {
+        return new ArrayList<>();
+      }
+    }
+    if (changed.size() == checksums.size() - 1) {
+      changed.clear();
+    }
+    return changed;
+  }
+
+  /**
+   * Writes a copy of the LaTeX source document declaring the given included files with \includeonly.
+   *
+   * @param source The LaTeX source document.
+   * @param target The copy to write.
+   * @param includes The names of the included files to compile.
+   * @return <code>false</code> if the document does not contain \begin{document}.
+   * @throws IOException If the document could not be read or the copy could not be written.
+   */
+  static boolean write(File source, File target, List<String> includes) throws IOException {
+    String content = FileUtils.readFileToString(source, StandardCharsets.UTF_8);
+    int index = content.indexOf(BEGIN_DOCUMENT);
+    if (index < 0) {
+      return false;
+    }
+    String includeOnly = "\\includeonly{" + String.join(",", includes) + "}\n";
+    FileUtils.writeStringToFile(target, content.substring(0, index) + includeOnly + content.substring(index), StandardCharsets.UTF_8);
+    return true;
+  }
+
+  private static String stripComment(String line) {
+    for (int i = 0; i < line.length(); i++) {
+      if (line.charAt(i) == '%' && (i == 0 || line.charAt(i - 1) != '\\')) {
+        return line.substring(0, i);
+      }
+    }
+    return line;
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The exact set of input files read by the last build. The files read by the TeX engine are taken from the .fls file written with the option -recorder. The manifest records size, modification time
+ * and checksum of every input, so the next build can be skipped if none of them changed. Files which were not read (e.g. an unused figure) do not affect the manifest.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class InputManifest {
+
+  private static final String SETTINGS = "settings";
+  private static final Pattern BIBTEX_ENTRY = Pattern.compile("\\\\(bibdata|bibstyle)\\{([^}]*)\\}");
+  private static final Pattern BIBER_DATASOURCE = Pattern.compile("<bcf:datasource[^>]*>([^<]+)</bcf:datasource>");
+
+  private final String settings;
+  private final Map<String, Entry> entries;
+
+  private InputManifest(String settings, Map<String, Entry> entries) {
+    this.settings = settings;
+    this.entries = entries;
+  }
+
+  /**
+   * Records the given input files.
+   *
+   * @param settings The fingerprint of the settings of the build (e.g. steps, executables and dependencies).
+   * @param inputs The input files read by the build.
+   * @return The manifest.
+   * @throws IOException If an input file could not be read.
+   */
+  static InputManifest record(String settings, Collection<File> inputs) throws IOException {
+    Map<String, Entry> entries = new TreeMap<>();
+    for (File input : inputs) {
+      if (input.isFile()) {
+        entries.put(input.getAbsolutePath(), new Entry(input.length(), input.lastModified(), Utils.checksum(input)));
+      }
+    }
+    return new InputManifest(settings, entries);
+  }
+
+  /**
+   * Reads the manifest stored by the last build.
+   *
+   * @param file The file of the manifest.
+   * @return The manifest or <code>null</code> if there is no manifest.
+   * @throws IOException If the manifest could not be read.
+   */
+  static InputManifest read(File file) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    String settings = null;
+    Map<String, Entry> entries = new TreeMap<>();
+    for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+      String[] values = line.split("\t");
+      if (values.length == 2 && SETTINGS.equals(values[0])) {
+        settings = values[1];
+      } else if (values.length == 4) {
+        entries.put(values[0], new Entry(Long.parseLong(values[1]), Long.parseLong(values[2]), values[3]));
+      }
+    }
+    return new InputManifest(settings, entries);
+  }
+
+  /**
+   * Checks if the settings of the build and all recorded input files are unchanged. The checksum of an input is only calculated if its size is unchanged but its modification time changed.
+   *
+   * @param currentSettings The fingerprint of the current settings of the build.
+   * @return <code>true</code> if the build is up to date.
+   * @throws IOException If an input file could not be read.
+   */
+  boolean isUpToDate(String currentSettings) throws IOException {
+    if (!currentSettings.equals(settings) || entries.isEmpty()) {
+      return false;
+    }
+    for (Map.Entry<String, Entry> recorded : entries.entrySet()) {
+      File input = new File(recorded.getKey());
+      Entry entry = recorded.getValue();
+      if (!input.isFile() || input.length() != entry.size) {
+        return false;
+      }
+      if (input.lastModified() != entry.modified && !entry.checksum.equals(Utils.checksum(input))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of recorded input files.
+   *
+   * @return The number of input files.
+   */
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Stores the manifest.
+   *
+   * @param file The file of the manifest.
+   * @throws IOException If the manifest could not be written.
+   */
+  void store(File file) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add(SETTINGS + "\t" + settings);
+    entries.forEach((path, entry) -> lines.add(String.join("\t", path, String.valueOf(entry.size), String.valueOf(entry.modified), entry.checksum)));
+    FileUtils.writeLines(file, StandardCharsets.UTF_8.name(), lines, "\n");
+  }
+
+  /**
+   * Reads the files recorded by the TeX engine with the option -recorder.
+   *
+   * @param fls The .fls file written by the TeX engine.
+   * @return The files read but not written by the TeX engine.
+   * @throws IOException If the .fls file could not be read.
+   */
+  static Set<File> readRecording(File fls) throws IOException {
+    Set<File> inputs = new LinkedHashSet<>();
+    Set<File> outputs = new LinkedHashSet<>();
+    File pwd = fls.getParentFile();
+    for (String line : FileUtils.readLines(fls, StandardCharsets.UTF_8)) {
+      if (line.startsWith("PWD ")) {
+        pwd = new File(line.substring(4));
+      } else if (line.startsWith("INPUT ")) {
+        inputs.add(resolve(pwd, line.substring(6)));
+      } else if (line.startsWith("OUTPUT ")) {
+        outputs.add(resolve(pwd, line.substring(7)));
+      }
+    }
+    inputs.removeAll(outputs);
+    return inputs;
+  }
+
+  /**
+   * Reads the names of the bibliography databases and styles used by the document. They are read by bibtex or biber and therefore not recorded by the TeX engine.
+   *
+   * @param workingDirectory The working directory.
+   * @param pureName The name of the LaTeX source document without file extension.
+   * @return The names of the files used.
+   * @throws IOException If an .aux or .bcf file could not be read.
+   */
+  static Set<String> readBibliography(File workingDirectory, String pureName) throws IOException {
+    Set<String> names = new LinkedHashSet<>();
+    for (File aux : FileUtils.listFiles(workingDirectory, new String[]{Constants.FORMAT_AUX}, true)) {
+      Matcher matcher = BIBTEX_ENTRY.matcher(FileUtils.readFileToString(aux, StandardCharsets.ISO_8859_1));
+      while (matcher.find()) {
+        String extension = "bibdata".equals(matcher.group(1)) ? Constants.FORMAT_BIB : Constants.FORMAT_BST;
+        for (String name : matcher.group(2).split(",")) {
+          names.add(withExtension(name.trim(), extension));
+        }
+      }
+    }
+    File bcf = new File(workingDirectory, pureName + "." + Constants.FORMAT_BCF);
+    if (bcf.exists()) {
+      Matcher matcher = BIBER_DATASOURCE.matcher(FileUtils.readFileToString(bcf, StandardCharsets.UTF_8));
+      while (matcher.find()) {
+        names.add(matcher.group(1).trim());
+      }
+    }
+    return names;
+  }
+
+  private static String withExtension(String name, String extension) {
+    return name.endsWith("." + extension) ? name : name + "." + extension;
+  }
+
+  private static File resolve(File pwd, String path) {
+    File file = new File(path);
+    return (file.isAbsolute() ? file : new File(pwd, path)).toPath().normalize().toFile();
+  }
+
+  /**
+   * A single input file recorded in the manifest.
+   */
+  private static class Entry {
+
+    private final long size;
+    private final long modified;
+    private final String checksum;
+
+    Entry(long size, long modified, String checksum) {
+      this.size = size;
+      this.modified = modified;
+      this.checksum = checksum;
+    }
+  }
+}
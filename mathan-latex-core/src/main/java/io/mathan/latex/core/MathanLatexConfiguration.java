@@ -16,7 +16,11 @@
 
 package io.mathan.latex.core;
 
-public class MathanLatexConfiguration {
+import java.io.Serializable;
+
+public class MathanLatexConfiguration implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   /**
    * The output format. Supported are dvi, pdf and ps.
@@ -71,6 +75,173 @@ public class MathanLatexConfiguration {
    */
   private boolean haltOnError = true;
 
+  /**
+   * Parameter for controlling if LaTeX passes should be skipped once the auxiliary files (.aux, .toc, .bbl, etc.) do not change any more and the log does not request a rerun. Additional passes are
+   * executed if the document has not converged after the configured {@link #buildSteps}.
+   */
+  private boolean convergence = false;
+
+  /**
+   * The maximum number of LaTeX passes executed if {@link #convergence} is enabled.
+   */
+  private int maxLatexPasses = 5;
+
+  /**
+   * Parameter for controlling if the build should be skipped if neither the sources, the dependencies, the steps nor the executables changed since the last build. The fingerprint of the last build
+   * is stored in the target directory.
+   */
+  private boolean buildCache = false;
+
+  /**
+   * Parameter for controlling if steps without a data dependency (e.g. bibtex and makeindex) should be executed concurrently.
+   */
+  private boolean parallelSteps = false;
+
+  /**
+   * Parameter for controlling if optional steps should be skipped without starting a process if the document does not need them. (e.g. bibtex is skipped if the .aux file does not contain a
+   * \bibdata entry)
+   */
+  private boolean planSteps = false;
+
+  /**
+   * Parameter for controlling if the results of bibtex, biber, makeindex and makeindexnomencl should be cached. A step is not executed again if its inputs did not change. The cache is kept beside
+   * the working directory as long as intermediate files are kept.
+   */
+  private boolean stepCache = false;
+
+  /**
+   * Parameter for controlling if the preamble of the LaTeX source document should be precompiled into a format file with mylatexformat. The LaTeX passes of latex, pdflatex and xelatex load the
+   * format instead of processing the preamble again. The format is only dumped again if the preamble or the engine changed.
+   */
+  private boolean precompilePreamble = false;
+
+  /**
+   * The time in milliseconds without further changes in the source directory before a rebuild is started in watch mode.
+   */
+  private long watchDebounce = 500;
+
+  /**
+   * Parameter for controlling if a LaTeX pass should be aborted as soon as the given number of errors was reported in its output. 0 disables the abort, 1 aborts at the first error.
+   */
+  private int maxErrors = 0;
+
+  /**
+   * The maximum time in seconds a single step may run. 0 disables the timeout. A timeout set for a step with {@link Step#getTimeout()} takes precedence.
+   */
+  private long stepTimeout = 0;
+
+  /**
+   * The maximum time in seconds a single step may run without writing any output. 0 disables the timeout. An idle timeout set for a step with {@link Step#getIdleTimeout()}
+   * takes precedence.
+   */
+  private long idleTimeout = 0;
+
+  /**
+   * The maximum time in seconds for executing all steps of a build. 0 disables the timeout.
+   */
+  private long buildTimeout = 0;
+
+  /**
+   * Parameter for controlling if the extracted resources of the dependencies should be cached in a directory shared by all builds on the host.
+   */
+  private boolean dependencyCache = false;
+
+  /**
+   * The directory of the dependency cache. If not set, the directory .mathan/cache in the home directory of the user is used.
+   */
+  private String dependencyCacheDirectory;
+
+  /**
+   * The maximum size of the dependency cache in megabytes. The least recently used entries are removed if the size is exceeded.
+   */
+  private long dependencyCacheSize = 1024;
+
+  /**
+   * Parameter for controlling if the source directory and the resources of the dependencies should be searched by the TeX tools (using TEXINPUTS, BIBINPUTS, BSTINPUTS and INDEXSTYLE) instead of
+   * being copied into the working directory. Only the files written by the steps are stored in the working directory.
+   */
+  private boolean overlay = false;
+
+  /**
+   * Parameter for controlling if the input files read by the TeX engine should be recorded (using the option -recorder). If none of the recorded inputs and none of the settings changed since the
+   * last build, the steps are not executed at all.
+   */
+  private boolean recorder = false;
+
+  /**
+   * Parameter for controlling if LaTeX passes except the final one should only write the auxiliary files (using the option -draftmode of pdflatex and lualatex or -no-pdf of xelatex). This avoids
+   * embedding images and fonts into an output file which is overwritten by the next pass anyway.
+   */
+  private boolean draftPasses = false;
+
+  /**
+   * User-defined profiles which can be selected with {@link #profile}. They take precedence over the predefined profiles {@value Profile#DRAFT} and {@value Profile#RELEASE}.
+   */
+  private Profile[] profiles;
+
+  /**
+   * The id of the profile to apply to the build or <code>null</code> if no profile should be applied.
+   */
+  private String profile;
+
+  /**
+   * Parameter for controlling if only the files included with \include which changed since the last build should be compiled (using \includeonly). The .aux files of the other included files are
+   * kept from the last build, so cross-references and page numbers stay valid. Requires {@link #keepIntermediateFiles}.
+   */
+  private boolean includeOnlyChanged = false;
+
+  /**
+   * The working directory the steps are executed in, relative to the project directory. The directories and files of caches are located beside the working directory, so builds with different
+   * working directories do not share any state.
+   */
+  private String workingDirectory = Constants.WORKING_DIRECTORY;
+
+  public MathanLatexConfiguration() {
+
+  }
+
+  /**
+   * Creates a copy of the given configuration. Only the settings declared by this class are copied, so the copy can be serialized even if the given configuration is extended by a build system.
+   * (e.g. to pass it to a Gradle worker)
+   *
+   * @param other The configuration to copy.
+   */
+  public MathanLatexConfiguration(MathanLatexConfiguration other) {
+    this.outputFormat = other.outputFormat;
+    this.texBin = other.texBin;
+    this.latexSteps = other.latexSteps;
+    this.buildSteps = other.buildSteps;
+    this.steps = other.steps;
+    this.keepIntermediateFiles = other.keepIntermediateFiles;
+    this.sourceDirectory = other.sourceDirectory;
+    this.makeIndexStyleFile = other.makeIndexStyleFile;
+    this.makeIndexNomenclStyleFile = other.makeIndexNomenclStyleFile;
+    this.texFile = other.texFile;
+    this.haltOnError = other.haltOnError;
+    this.convergence = other.convergence;
+    this.maxLatexPasses = other.maxLatexPasses;
+    this.buildCache = other.buildCache;
+    this.parallelSteps = other.parallelSteps;
+    this.planSteps = other.planSteps;
+    this.stepCache = other.stepCache;
+    this.precompilePreamble = other.precompilePreamble;
+    this.watchDebounce = other.watchDebounce;
+    this.maxErrors = other.maxErrors;
+    this.stepTimeout = other.stepTimeout;
+    this.idleTimeout = other.idleTimeout;
+    this.buildTimeout = other.buildTimeout;
+    this.dependencyCache = other.dependencyCache;
+    this.dependencyCacheDirectory = other.dependencyCacheDirectory;
+    this.dependencyCacheSize = other.dependencyCacheSize;
+    this.overlay = other.overlay;
+    this.recorder = other.recorder;
+    this.draftPasses = other.draftPasses;
+    this.profiles = other.profiles;
+    this.profile = other.profile;
+    this.includeOnlyChanged = other.includeOnlyChanged;
+    this.workingDirectory = other.workingDirectory;
+  }
+
   public String getOutputFormat() {
     return outputFormat;
   }
@@ -158,4 +329,180 @@ public class MathanLatexConfiguration {
   public void setHaltOnError(boolean haltOnError) {
     this.haltOnError = haltOnError;
   }
+
+  public boolean isConvergence() {
+    return convergence;
+  }
+
+  public void setConvergence(boolean convergence) {
+    this.convergence = convergence;
+  }
+
+  public int getMaxLatexPasses() {
+    return maxLatexPasses;
+  }
+
+  public void setMaxLatexPasses(int maxLatexPasses) {
+    this.maxLatexPasses = maxLatexPasses;
+  }
+
+  public boolean isBuildCache() {
+    return buildCache;
+  }
+
+  public void setBuildCache(boolean buildCache) {
+    this.buildCache = buildCache;
+  }
+
+  public boolean isParallelSteps() {
+    return parallelSteps;
+  }
+
+  public void setParallelSteps(boolean parallelSteps) {
+    this.parallelSteps = parallelSteps;
+  }
+
+  public boolean isPlanSteps() {
+    return planSteps;
+  }
+
+  public void setPlanSteps(boolean planSteps) {
+    this.planSteps = planSteps;
+  }
+
+  public boolean isStepCache() {
+    return stepCache;
+  }
+
+  public void setStepCache(boolean stepCache) {
+    this.stepCache = stepCache;
+  }
+
+  public boolean isPrecompilePreamble() {
+    return precompilePreamble;
+  }
+
+  public void setPrecompilePreamble(boolean precompilePreamble) {
+    this.precompilePreamble = precompilePreamble;
+  }
+
+  public long getWatchDebounce() {
+    return watchDebounce;
+  }
+
+  public void setWatchDebounce(long watchDebounce) {
+    this.watchDebounce = watchDebounce;
+  }
+
+  public int getMaxErrors() {
+    return maxErrors;
+  }
+
+  public void setMaxErrors(int maxErrors) {
+    this.maxErrors = maxErrors;
+  }
+
+  public long getStepTimeout() {
+    return stepTimeout;
+  }
+
+  public void setStepTimeout(long stepTimeout) {
+    this.stepTimeout = stepTimeout;
+  }
+
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public void setIdleTimeout(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public long getBuildTimeout() {
+    return buildTimeout;
+  }
+
+  public void setBuildTimeout(long buildTimeout) {
+    this.buildTimeout = buildTimeout;
+  }
+
+  public boolean isDependencyCache() {
+    return dependencyCache;
+  }
+
+  public void setDependencyCache(boolean dependencyCache) {
+    this.dependencyCache = dependencyCache;
+  }
+
+  public String getDependencyCacheDirectory() {
+    return dependencyCacheDirectory;
+  }
+
+  public void setDependencyCacheDirectory(String dependencyCacheDirectory) {
+    this.dependencyCacheDirectory = dependencyCacheDirectory;
+  }
+
+  public long getDependencyCacheSize() {
+    return dependencyCacheSize;
+  }
+
+  public void setDependencyCacheSize(long dependencyCacheSize) {
+    this.dependencyCacheSize = dependencyCacheSize;
+  }
+
+  public boolean isOverlay() {
+    return overlay;
+  }
+
+  public void setOverlay(boolean overlay) {
+    this.overlay = overlay;
+  }
+
+  public boolean isRecorder() {
+    return recorder;
+  }
+
+  public void setRecorder(boolean recorder) {
+    this.recorder = recorder;
+  }
+
+  public boolean isDraftPasses() {
+    return draftPasses;
+  }
+
+  public void setDraftPasses(boolean draftPasses) {
+    this.draftPasses = draftPasses;
+  }
+
+  public Profile[] getProfiles() {
+    return profiles;
+  }
+
+  public void setProfiles(Profile[] profiles) {
+    this.profiles = profiles;
+  }
+
+  public String getProfile() {
+    return profile;
+  }
+
+  public void setProfile(String profile) {
+    this.profile = profile;
+  }
+
+  public boolean isIncludeOnlyChanged() {
+    return includeOnlyChanged;
+  }
+
+  public void setIncludeOnlyChanged(boolean includeOnlyChanged) {
+    this.includeOnlyChanged = includeOnlyChanged;
+  }
+
+  public String getWorkingDirectory() {
+    return workingDirectory;
+  }
+
+  public void setWorkingDirectory(String workingDirectory) {
+    this.workingDirectory = workingDirectory;
+  }
 }
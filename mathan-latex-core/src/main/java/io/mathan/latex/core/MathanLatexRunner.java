@@ -17,18 +17,34 @@
 package io.mathan.latex.core;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.zeroturnaround.exec.ProcessExecutor;
+import org.zeroturnaround.exec.StartedProcess;
 
 public class MathanLatexRunner {
 
@@ -47,19 +63,129 @@ public class MathanLatexRunner {
       Step.STEP_MAKEINDEX, Step.STEP_MAKEINDEXNOMENCL, Step.STEP_PDFLATEX, Step.STEP_PS2PDF,
       Step.STEP_XELATEX);
 
+  /**
+   * The options of the TeX engines for a LaTeX pass which only writes the auxiliary files but no output file.
+   */
+  private static final Map<String, String> DRAFT_OPTIONS = new HashMap<>();
+
+  static {
+    DRAFT_OPTIONS.put(Step.STEP_PDFLATEX.getName(), "-draftmode");
+    DRAFT_OPTIONS.put(Step.STEP_LULATEX.getName(), "-draftmode");
+    DRAFT_OPTIONS.put("lualatex", "-draftmode");
+    DRAFT_OPTIONS.put(Step.STEP_XELATEX.getName(), "-no-pdf");
+  }
+
   private final MathanLatexConfiguration configuration;
   private final Build build;
 
 
   /**
    * The registry of all steps available. This registry will contain the default steps provided by the mathan-latex-maven-plugin itself and the user defined steps provided with the parameter {@link
-   * MathanLatexConfiguration#getSteps()}.
+   * MathanLatexConfiguration#getSteps()}. The registry contains copies of these steps, so they can be configured for this runner without affecting other runners.
    */
   private Map<String, Step> stepRegistry = new HashMap<>();
 
+  /**
+   * The steps executed for a single LaTeX pass as configured with {@link MathanLatexConfiguration#getLatexSteps()}.
+   */
+  private List<Step> latexSteps;
+
+  /**
+   * The ids of the steps executed for a single LaTeX pass. These are configured with {@link MathanLatexConfiguration#getLatexSteps()} or the selected profile, otherwise the default for the output
+   * format is used.
+   */
+  private String[] latexStepIds;
+
+  /**
+   * The ids of the steps executed in the build. These are configured with {@link MathanLatexConfiguration#getBuildSteps()} or the selected profile, otherwise {@link #DEFAULT_BUILD_STEPS} are used.
+   */
+  private String[] buildStepIds;
+
+  /**
+   * The steps whose executables are required for the build.
+   */
+  private List<Step> executables;
+
+  /**
+   * The precompiled formats available for the current build by the name of the engine. An empty name indicates that no format could be dumped for the engine.
+   */
+  private final Map<String, String> formats = new HashMap<>();
+
+  /**
+   * Flag indicating if the dependencies were already resolved into the working directory. In watch mode the dependencies are only resolved for the first build.
+   */
+  private boolean dependenciesResolved;
+
+  /**
+   * The time in milliseconds the current build has to be finished by or 0 if there is no {@link MathanLatexConfiguration#getBuildTimeout() build timeout}.
+   */
+  private long buildDeadline;
+
+  /**
+   * The directories the input files of the current build are searched in.
+   */
+  private SearchPath searchPath;
+
+  /**
+   * The fingerprint of the settings of the current build the recorded inputs are stored with or <code>null</code> if {@link MathanLatexConfiguration#isRecorder() the inputs are not recorded}.
+   */
+  private String recordedSettings;
+
+  /**
+   * Flag indicating if the current build only compiled the changed included files using \includeonly. The output of such a build is not complete.
+   */
+  private boolean partialBuild;
+
+  /**
+   * The checksums of the LaTeX source document and its included files for the current build. They are stored once the build succeeded.
+   */
+  private IncludeOnly includes;
+
+  /**
+   * The working directory of the build.
+   */
+  private final File workingDirectory;
+
+  /**
+   * The path of the LaTeX source document relative to the source directory or <code>null</code> if the single LaTeX source document in the source directory should be built.
+   */
+  private String document;
+
+  /**
+   * The classifier of the artifact or <code>null</code> for the artifact of the build itself.
+   */
+  private final String classifier;
+
+  /**
+   * The archives of the dependencies, resolved once for all documents.
+   */
+  private List<File> dependencyArchives;
+
   public MathanLatexRunner(MathanLatexConfiguration configuration, Build build) {
-    this.configuration = configuration;
+    // the settings of a profile or of the watch mode are applied to a copy, so the configuration of the build is not modified
+    this.configuration = new MathanLatexConfiguration(configuration);
     this.build = build;
+    File directory = new File(configuration.getWorkingDirectory() == null ? Constants.WORKING_DIRECTORY : configuration.getWorkingDirectory());
+    this.workingDirectory = directory.isAbsolute() ? directory : new File(build.getBasedir(), directory.getPath());
+    this.classifier = null;
+  }
+
+  /**
+   * Creates a runner for one of the documents of the given runner. The document is built in its own working directory below the working directory of the given runner.
+   *
+   * @param parent The runner building all documents.
+   * @param document The path of the LaTeX source document relative to the source directory.
+   * @param attached <code>true</code> if the document provides a classified artifact, <code>false</code> if it provides the artifact of the build.
+   */
+  private MathanLatexRunner(MathanLatexRunner parent, String document, boolean attached) {
+    this.configuration = parent.configuration;
+    this.build = parent.build;
+    this.stepRegistry = parent.stepRegistry;
+    this.latexSteps = parent.latexSteps;
+    this.dependencyArchives = parent.dependencyArchives;
+    this.document = document;
+    this.classifier = attached ? getDocumentName(document) : null;
+    this.workingDirectory = new File(parent.workingDirectory, getDocumentName(document));
   }
 
   /**
@@ -67,24 +193,259 @@ public class MathanLatexRunner {
    */
   public void execute() throws LatexExecutionException {
     final List<Step> stepsToExecute = configureSteps();
-    build.getLog().info("[mathan] bin directory of tex distribution: " + configuration.getTexBin());
-    build.getLog().info("[mathan] output format : " + configuration.getOutputFormat());
-    build.getLog().info("[mathan] latex steps: " + String.join(",", configuration.getLatexSteps()));
-    build.getLog().info("[mathan] build steps: " + String.join(",", configuration.getBuildSteps()));
+    logConfiguration();
 
     File baseDirectory = build.getBasedir();
     File texDirectory = new File(baseDirectory, configuration.getSourceDirectory());
+    List<String> documents = resolveDocuments(texDirectory);
+    if (documents.size() > 1) {
+      executeDocuments(stepsToExecute, texDirectory, documents);
+    } else {
+      document = documents.isEmpty() ? null : documents.get(0);
+      executeDocument(stepsToExecute, texDirectory);
+    }
+  }
+
+  /**
+   * Builds one of the documents returned by {@link #getDocuments()}, so a build system can schedule the documents itself. (e.g. as work items of a Gradle task) The document is built the same way
+   * as by {@link #execute()}: in its own working directory and providing the artifact of the build if it is the first document, otherwise an artifact with the name of the document as classifier.
+   *
+   * @param texFile The path of the LaTeX source document relative to the source directory.
+   * @throws LatexExecutionException If an error occurred during the build.
+   */
+  public void execute(String texFile) throws LatexExecutionException {
+    final List<Step> stepsToExecute = configureSteps();
+    List<String> documents = getDocuments();
+    if (documents.isEmpty() || documents.get(0).equals(texFile)) {
+      // the configuration is the same for all documents
+      logConfiguration();
+    }
+    File texDirectory = new File(build.getBasedir(), configuration.getSourceDirectory());
+    new MathanLatexRunner(this, texFile, !documents.isEmpty() && !documents.get(0).equals(texFile)).executeDocument(stepsToExecute, texDirectory);
+  }
+
+  /**
+   * Returns the LaTeX source documents if multiple documents are configured with {@link MathanLatexConfiguration#getTexFile()}.
+   *
+   * @return The paths of the LaTeX source documents relative to the source directory or an empty list if a single document is built.
+   * @throws LatexExecutionException If a pattern does not match any LaTeX source document.
+   */
+  public List<String> getDocuments() throws LatexExecutionException {
+    List<String> documents = resolveDocuments(new File(build.getBasedir(), configuration.getSourceDirectory()));
+    return documents.size() > 1 ? documents : Collections.emptyList();
+  }
+
+  /**
+   * Builds the given documents concurrently, each of them in its own working directory. The number of concurrent builds is limited by the number of available processors. The artifact of the first
+   * document is the artifact of the build, the artifacts of the other documents are attached with the name of the document as classifier.
+   *
+   * @param stepsToExecute The steps to execute.
+   * @param texDirectory The directory containing the LaTeX source documents.
+   * @param documents The paths of the LaTeX source documents relative to the source directory.
+   * @throws LatexExecutionException If the build of at least one document failed.
+   */
+  private void executeDocuments(List<Step> stepsToExecute, File texDirectory, List<String> documents) throws LatexExecutionException {
+    // resolve the dependencies once for all documents
+    getDependencyArchives();
+    int threads = Math.min(documents.size(), Runtime.getRuntime().availableProcessors());
+    build.getLog().info(String.format("[mathan] building %s documents using %s threads", documents.size(), threads));
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < documents.size(); i++) {
+        MathanLatexRunner runner = new MathanLatexRunner(this, documents.get(i), i > 0);
+        futures.add(executor.submit(() -> {
+          runner.executeDocument(stepsToExecute, texDirectory);
+          return null;
+        }));
+      }
+      List<String> failed = new ArrayList<>();
+      Throwable cause = null;
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          build.getLog().error(String.format("[mathan] build of %s failed: %s", documents.get(i), e.getCause().getMessage()));
+          failed.add(documents.get(i));
+          cause = cause == null ? e.getCause() : cause;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new LatexExecutionException(String.format("Build of %s interrupted", documents.get(i)), e);
+        }
+      }
+      if (!failed.isEmpty()) {
+        throw new LatexExecutionException(String.format("Could not build %s", String.join(", ", failed)), cause);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Builds a single LaTeX source document unless the build can be skipped.
+   *
+   * @param stepsToExecute The steps to execute.
+   * @param texDirectory The directory containing the LaTeX source document.
+   * @throws LatexExecutionException If an error occurred during the build.
+   */
+  private void executeDocument(List<Step> stepsToExecute, File texDirectory) throws LatexExecutionException {
+    BuildFingerprint fingerprint = null;
+    if (configuration.isBuildCache()) {
+      fingerprint = createFingerprint(stepsToExecute);
+      fingerprint.addDirectory("source", texDirectory);
+      File artifact = getArtifactFile();
+      if (fingerprint.matches(getFingerprintFile()) && artifact.exists()) {
+        build.getLog().info(String.format("[mathan] build cache hit, %s is up to date", artifact.getName()));
+        publishArtifact(artifact);
+        return;
+      }
+    }
+    if (configuration.isRecorder()) {
+      recordedSettings = createFingerprint(stepsToExecute).getValue();
+      File artifact = getArtifactFile();
+      if (artifact.exists() && isRecordedInputsUnchanged()) {
+        build.getLog().info(String.format("[mathan] recorded inputs unchanged, %s is up to date", artifact.getName()));
+        publishArtifact(artifact);
+        return;
+      }
+    }
 
     executeSteps(stepsToExecute, texDirectory);
-    // remove intermediate files
-    if (!configuration.isKeepIntermediateFiles()) {
-      File workingDirectory = new File(build.getBasedir(), "target/latex");
+    if (partialBuild) {
+      // the output is not complete, so the next build must not be skipped
+      FileUtils.deleteQuietly(getFingerprintFile());
+    } else if (fingerprint != null) {
       try {
-        FileUtils.deleteDirectory(workingDirectory);
+        fingerprint.store(getFingerprintFile());
       } catch (IOException e) {
-        build.getLog().warn(String.format("Could not delete directory %s", workingDirectory.getAbsolutePath()));
+        build.getLog().warn(String.format("Could not write fingerprint %s", getFingerprintFile().getAbsolutePath()), e);
+      }
+    }
+  }
+
+  /**
+   * Builds the LaTeX source document and rebuilds it whenever a file in the source directory changes until the current thread is interrupted. The steps are configured and the dependencies are
+   * resolved only once. For every change only the changed files are synchronized into the working directory. Intermediate files are always kept and the convergence check and the step cache are
+   * enabled, so a rebuild only executes the steps the change requires. A failed build is logged and does not stop watching.
+   *
+   * @throws LatexExecutionException If the configuration is invalid or the source directory cannot be watched.
+   */
+  public void watch() throws LatexExecutionException {
+    configuration.setKeepIntermediateFiles(true);
+    configuration.setConvergence(true);
+    configuration.setStepCache(true);
+    final List<Step> stepsToExecute = configureSteps();
+    logConfiguration();
+
+    File texDirectory = new File(build.getBasedir(), configuration.getSourceDirectory());
+    List<String> documents = resolveDocuments(texDirectory);
+    if (documents.size() > 1) {
+      throw new LatexExecutionException(String.format("Only a single document can be watched but %s documents are configured with texFile.", documents.size()));
+    }
+    document = documents.isEmpty() ? null : documents.get(0);
+    try (SourceWatcher watcher = new SourceWatcher(texDirectory, configuration.getWatchDebounce())) {
+      while (!Thread.currentThread().isInterrupted()) {
+        long start = System.currentTimeMillis();
+        try {
+          executeSteps(stepsToExecute, texDirectory);
+          build.getLog().info(String.format("[mathan] build finished in %s ms", System.currentTimeMillis() - start));
+        } catch (LatexExecutionException e) {
+          build.getLog().error("[mathan] build failed: " + e.getMessage(), e);
+        }
+        build.getLog().info(String.format("[mathan] watching %s for changes", texDirectory.getAbsolutePath()));
+        Set<String> changes = watcher.awaitChanges();
+        build.getLog().info(String.format("[mathan] changes detected: %s", String.join(",", changes)));
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not watch directory %s", texDirectory.getAbsolutePath()), e);
     }
+    build.getLog().info("[mathan] watching stopped");
+  }
+
+  /**
+   * Describes the settings the output of the build depends on besides the sources, the dependencies and the toolchain: the steps to execute with their arguments. The executables are not resolved,
+   * so the description is the same on all hosts and can be created without a TeX distribution. Build systems can use the description to decide if the output of a previous build can be reused. (e.g.
+   * the inputs of a Gradle task)
+   *
+   * @return The settings by their name.
+   * @throws LatexExecutionException If the configuration is invalid.
+   */
+  public Map<String, String> describeSettings() throws LatexExecutionException {
+    List<Step> stepsToExecute = configureSteps(false);
+    Map<String, String> settings = new LinkedHashMap<>();
+    settings.put("outputFormat", configuration.getOutputFormat());
+    settings.put("texFile", String.valueOf(configuration.getTexFile()));
+    settings.put("convergence", String.valueOf(configuration.isConvergence()));
+    settings.put("maxLatexPasses", String.valueOf(configuration.getMaxLatexPasses()));
+    settings.put("draftPasses", String.valueOf(configuration.isDraftPasses()));
+    settings.put("includeOnlyChanged", String.valueOf(configuration.isIncludeOnlyChanged()));
+    settings.put("resources", String.valueOf(build.getResourceFilter()));
+    for (int i = 0; i < stepsToExecute.size(); i++) {
+      Step step = stepsToExecute.get(i);
+      settings.put("step." + i, String.format("%s:%s:%s", step.getId(), step.getName(), step.getArguments()));
+    }
+    return settings;
+  }
+
+  /**
+   * Describes the executables of the steps to execute by their name. An executable is identified by its location, its size and the checksum of its content, so a build system can detect a changed
+   * toolchain on the current host.
+   *
+   * @return The identity of the executables by their name.
+   * @throws LatexExecutionException If the configuration is invalid or an executable could not be found or read.
+   */
+  public Map<String, String> describeToolchain() throws LatexExecutionException {
+    configureSteps();
+    Map<String, String> toolchain = new LinkedHashMap<>();
+    for (Map.Entry<String, File> executable : getExecutables().entrySet()) {
+      try {
+        toolchain.put(executable.getKey(), Utils.getIdentity(executable.getValue()));
+      } catch (IOException e) {
+        throw new LatexExecutionException(String.format("Could not read %s", executable.getValue().getAbsolutePath()), e);
+      }
+    }
+    return toolchain;
+  }
+
+  /**
+   * Returns the artifacts provided by the build: the artifact of the build itself and the classified artifacts of the other documents if multiple documents are configured.
+   *
+   * @return The artifacts by their classifier. The artifact of the build itself has an empty classifier.
+   * @throws LatexExecutionException If a configured LaTeX source document does not exist.
+   */
+  public Map<String, File> getArtifacts() throws LatexExecutionException {
+    List<String> documents = getDocuments();
+    if (documents.isEmpty()) {
+      return Collections.singletonMap("", getArtifactFile());
+    }
+    Map<String, File> artifacts = new LinkedHashMap<>();
+    for (int i = 0; i < documents.size(); i++) {
+      MathanLatexRunner runner = new MathanLatexRunner(this, documents.get(i), i > 0);
+      artifacts.put(runner.classifier == null ? "" : runner.classifier, runner.getArtifactFile());
+    }
+    return artifacts;
+  }
+
+  private void logConfiguration() {
+    if (configuration.getProfile() != null && !configuration.getProfile().trim().isEmpty()) {
+      build.getLog().info("[mathan] profile: " + configuration.getProfile().trim());
+    }
+    build.getLog().info("[mathan] bin directory of tex distribution: " + configuration.getTexBin());
+    build.getLog().info("[mathan] output format : " + configuration.getOutputFormat());
+    build.getLog().info("[mathan] latex steps: " + String.join(",", latexStepIds));
+    build.getLog().info("[mathan] build steps: " + String.join(",", buildStepIds));
+    build.getLog().info("[mathan] toolchain: " + getExecutables().entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue().getAbsolutePath()).collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Returns the executables of the configured steps by their name.
+   */
+  private Map<String, File> getExecutables() {
+    Map<String, File> toolchain = new LinkedHashMap<>();
+    executables.forEach(step -> toolchain.computeIfAbsent(step.getOperatingSystemName(), name -> Utils.getExecutable(configuration.getTexBin(), name)));
+    return toolchain;
   }
 
   /**
@@ -96,34 +457,434 @@ public class MathanLatexRunner {
    * @throws LatexExecutionException Most likely when an IOException occurred during the build.
    */
   private void executeSteps(List<Step> stepsToExecute, File source) throws LatexExecutionException {
+    buildDeadline = configuration.getBuildTimeout() > 0 ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(configuration.getBuildTimeout()) : 0;
     File workingDirectory = createWorkingDirectory();
-    build.resolveDependencies(workingDirectory);
-    copySources(source, workingDirectory);
+    formats.clear();
+    if (configuration.isOverlay()) {
+      File dependencyDirectory = getDependencyDirectory();
+      searchPath = SearchPath.overlay(workingDirectory, source, dependencyDirectory);
+      if (!dependenciesResolved) {
+        createDependencyDirectory(dependencyDirectory);
+        resolveDependencies(dependencyDirectory);
+        dependenciesResolved = true;
+      }
+      createDirectories(source, workingDirectory);
+    } else {
+      searchPath = SearchPath.of(workingDirectory);
+      if (!dependenciesResolved) {
+        resolveDependencies(workingDirectory);
+        dependenciesResolved = true;
+      }
+      copySources(source, workingDirectory);
+    }
     File mainFile = resolveMainFile(source, workingDirectory);
     build.getLog().info(String.format("[mathan] processing %s", mainFile.getName()));
     FileWriter completeLog;
     String pureName = mainFile.getName().substring(0, mainFile.getName().lastIndexOf('.'));
     completeLog = createLog(workingDirectory);
-    int stepCount = stepsToExecute.size();
-    for (int i = 0; i < stepCount; i++) {
-      Step step = stepsToExecute.get(i);
-      logHeader(completeLog, i + 1, stepCount, step);
-      executeStep(step, workingDirectory, mainFile);
-      appendLogTo(completeLog, workingDirectory, pureName, step);
+    File sourceMainFile = new File(source, workingDirectory.toPath().relativize(mainFile.toPath()).toString());
+    includes = null;
+    partialBuild = configuration.isIncludeOnlyChanged() && prepareIncludeOnly(sourceMainFile, workingDirectory, mainFile);
+    try {
+      executeStepList(stepsToExecute, workingDirectory, mainFile, completeLog);
+    } finally {
+      if (partialBuild) {
+        restoreMainFile(sourceMainFile, mainFile);
+      }
     }
     closeLog(completeLog);
     provideArtifact(workingDirectory, pureName);
+    if (includes != null) {
+      try {
+        includes.store(getIncludeFile());
+      } catch (IOException e) {
+        build.getLog().warn(String.format("Could not write %s", getIncludeFile().getAbsolutePath()), e);
+      }
+    }
+    if (partialBuild) {
+      FileUtils.deleteQuietly(getInputManifestFile());
+    } else if (recordedSettings != null) {
+      recordInputs(source, workingDirectory, mainFile);
+    }
     cleanUp(workingDirectory);
   }
 
+  /**
+   * Executes the given steps. Consecutive steps which are not LaTeX passes are executed concurrently if {@link MathanLatexConfiguration#isParallelSteps()} is enabled. If {@link
+   * MathanLatexConfiguration#isConvergence()} is enabled, LaTeX passes are skipped as soon as the document has converged. If the document has not converged after the given steps, the configured latex
+   * steps are repeated until the document converges or the {@link MathanLatexConfiguration#getMaxLatexPasses() maximum number of LaTeX passes} is reached.
+   *
+   * <p>If {@link MathanLatexConfiguration#isDraftPasses()} is enabled, all LaTeX passes except the final one are executed in draft mode. Without convergence check the final pass is the last LaTeX
+   * pass of the given steps. With convergence check it is not known in advance which pass is the last one, so the last LaTeX pass is repeated without draft mode after the document converged.</p>
+   *
+   * @param stepsToExecute The steps to execute.
+   * @param workingDirectory The working directory for the command execution.
+   * @param mainFile The LaTeX source document.
+   * @param completeLog The log to append the logs of the single steps to.
+   * @throws LatexExecutionException If an error occurred during the execution of a step.
+   */
+  private void executeStepList(List<Step> stepsToExecute, File workingDirectory, File mainFile, FileWriter completeLog) throws LatexExecutionException {
+    String pureName = mainFile.getName().substring(0, mainFile.getName().lastIndexOf('.'));
+    Convergence convergence = configuration.isConvergence() ? new Convergence(workingDirectory, pureName) : null;
+    boolean repeatable = latexSteps.stream().anyMatch(Step::isLatexPass);
+    List<Step> steps = new ArrayList<>(stepsToExecute);
+    int finalPass = -1;
+    for (int j = 0; j < steps.size(); j++) {
+      if (steps.get(j).isLatexPass()) {
+        finalPass = j;
+      }
+    }
+    Step lastPass = null;
+    boolean lastPassDraft = false;
+    int passes = 0;
+    int i = 0;
+    while (i < steps.size()) {
+      Step step = steps.get(i);
+      if (step.isLatexPass()) {
+        if (convergence != null && (passes >= configuration.getMaxLatexPasses() || (passes > 0 && convergence.isConverged()))) {
+          build.getLog().info("[mathan] execution skipped: " + step.getId());
+        } else {
+          if (convergence != null) {
+            convergence.beforePass();
+          }
+          logHeader(completeLog, i + 1, steps.size(), step);
+          lastPass = step;
+          // with convergence the final pass is not known in advance, so only the first pass writing the initial auxiliary files is a draft
+          lastPassDraft = getDraftOption(step) != null && (convergence != null ? passes == 0 : i != finalPass);
+          executeStep(step, workingDirectory, mainFile, lastPassDraft);
+          passes++;
+          if (convergence != null) {
+            convergence.afterPass(new File(workingDirectory, pureName + "." + step.getLogExtension()));
+          }
+          appendLogTo(completeLog, workingDirectory, pureName, step);
+        }
+        i++;
+      } else {
+        int end = i;
+        while (end < steps.size() && !steps.get(end).isLatexPass()) {
+          end++;
+        }
+        executeTools(steps.subList(i, end), i, steps.size(), workingDirectory, mainFile, completeLog);
+        i = end;
+      }
+      if (convergence != null && i == steps.size() && repeatable && passes < configuration.getMaxLatexPasses() && !convergence.isConverged()) {
+        steps.addAll(latexSteps);
+      }
+    }
+    if (lastPassDraft) {
+      build.getLog().info("[mathan] final pass: " + lastPass.getId());
+      logHeader(completeLog, steps.size() + 1, steps.size() + 1, lastPass);
+      executeStep(lastPass, workingDirectory, mainFile, false);
+      appendLogTo(completeLog, workingDirectory, pureName, lastPass);
+    }
+    if (convergence != null) {
+      if (convergence.isConverged()) {
+        build.getLog().info(String.format("[mathan] document converged after %s LaTeX passes", passes));
+      } else {
+        build.getLog().warn(String.format("[mathan] document did not converge after %s LaTeX passes", passes));
+      }
+    }
+  }
+
+  /**
+   * Executes consecutive steps which are not LaTeX passes. If {@link MathanLatexConfiguration#isParallelSteps()} is enabled, steps without a data dependency are executed concurrently. The logs of
+   * the steps are appended in the declared order.
+   *
+   * @param tools The steps to execute.
+   * @param offset The index of the first step in the list of all steps.
+   * @param stepCount The number of all steps.
+   * @param workingDirectory The working directory for the command execution.
+   * @param mainFile The LaTeX source document.
+   * @param completeLog The log to append the logs of the single steps to.
+   * @throws LatexExecutionException If an error occurred during the execution of a step.
+   */
+  private void executeTools(List<Step> tools, int offset, int stepCount, File workingDirectory, File mainFile, FileWriter completeLog) throws LatexExecutionException {
+    String pureName = mainFile.getName().substring(0, mainFile.getName().lastIndexOf('.'));
+    if (!configuration.isParallelSteps() || tools.size() < 2) {
+      for (int i = 0; i < tools.size(); i++) {
+        Step step = tools.get(i);
+        logHeader(completeLog, offset + i + 1, stepCount, step);
+        executeStep(step, workingDirectory, mainFile);
+        appendLogTo(completeLog, workingDirectory, pureName, step);
+      }
+      return;
+    }
+    int threads = Math.min(tools.size(), Runtime.getRuntime().availableProcessors());
+    List<String> logs = new StepScheduler(tools).execute(step -> {
+      executeStep(step, workingDirectory, mainFile);
+      return readStepLog(workingDirectory, pureName, step);
+    }, threads);
+    for (int i = 0; i < tools.size(); i++) {
+      logHeader(completeLog, offset + i + 1, stepCount, tools.get(i));
+      try {
+        completeLog.write(logs.get(i));
+      } catch (IOException e) {
+        throw new LatexExecutionException("Could not write mathan-latext-mojo.log", e);
+      }
+    }
+  }
+
+  /**
+   * Calculates the fingerprint of the settings of the build: the archives of the dependencies and the filter for their resources, the steps to execute and the executables used. The source
+   * directory is not included.
+   *
+   * @param stepsToExecute The steps to execute.
+   * @return The fingerprint.
+   * @throws LatexExecutionException If an input could not be read or a dependency could not be resolved.
+   */
+  private BuildFingerprint createFingerprint(List<Step> stepsToExecute) throws LatexExecutionException {
+    BuildFingerprint fingerprint = new BuildFingerprint();
+    fingerprint.add("outputFormat", configuration.getOutputFormat());
+    fingerprint.add("texFile", document);
+    fingerprint.add("convergence", configuration.isConvergence());
+    fingerprint.add("maxLatexPasses", configuration.getMaxLatexPasses());
+    for (Step step : stepsToExecute) {
+      fingerprint.add("step", String.format("%s:%s:%s", step.getId(), step.getName(), step.getArguments()));
+      fingerprint.addExecutable("executable", Utils.getExecutable(configuration.getTexBin(), step.getOperatingSystemName()));
+    }
+    fingerprint.add("resources", build.getResourceFilter());
+    // the checksums of the archives are shared with the dependency cache, so an unchanged archive is not read again
+    File checksums = configuration.isDependencyCache() ? getDependencyCacheDirectory() : getCacheDirectory();
+    for (File archive : getDependencyArchives()) {
+      try {
+        fingerprint.add("dependency:" + archive.getName(), DependencyCache.getChecksum(archive, checksums));
+      } catch (IOException e) {
+        throw new LatexExecutionException(String.format("Could not read file %s", archive.getAbsolutePath()), e);
+      }
+    }
+    return fingerprint;
+  }
+
+  private File getWorkingDirectory() {
+    return workingDirectory;
+  }
+
+  /**
+   * Resolves the LaTeX source documents configured with {@link MathanLatexConfiguration#getTexFile()}. The parameter is a comma-separated list of paths relative to the source directory which may
+   * contain the wildcards '*', '**' and '?'.
+   *
+   * @param source The source directory.
+   * @return The paths of the LaTeX source documents relative to the source directory or an empty list if the single LaTeX source document in the source directory should be built.
+   * @throws LatexExecutionException If a pattern does not match any LaTeX source document.
+   */
+  private List<String> resolveDocuments(File source) throws LatexExecutionException {
+    List<String> documents = new ArrayList<>();
+    if (configuration.getTexFile() == null) {
+      return documents;
+    }
+    for (String entry : configuration.getTexFile().split(",")) {
+      String texFile = entry.trim();
+      if (texFile.isEmpty()) {
+        continue;
+      }
+      List<String> matches = new ArrayList<>();
+      if (texFile.contains("*") || texFile.contains("?")) {
+        Pattern pattern = ResourceFilter.toRegex(texFile);
+        for (File file : FileUtils.listFiles(source, new String[]{Constants.FORMAT_TEX}, true)) {
+          String path = source.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+          if (pattern.matcher(path).matches()) {
+            matches.add(path);
+          }
+        }
+        if (matches.isEmpty()) {
+          throw new LatexExecutionException(String.format("No LaTeX source document matching '%s' found in %s", texFile, source.getAbsolutePath()));
+        }
+        Collections.sort(matches);
+      } else {
+        matches.add(texFile);
+      }
+      matches.stream().filter(match -> !documents.contains(match)).forEach(documents::add);
+    }
+    return documents;
+  }
+
+  /**
+   * Returns the name of the given LaTeX source document used for its working directory and as classifier of its artifact.
+   */
+  private static String getDocumentName(String document) {
+    String name = document.endsWith("." + Constants.FORMAT_TEX) ? document.substring(0, document.length() - Constants.FORMAT_TEX.length() - 1) : document;
+    return name.replace('/', '-').replace('\\', '-');
+  }
+
+  /**
+   * Returns the archives of the dependencies. They are resolved only once, so the documents of a build share them.
+   */
+  private List<File> getDependencyArchives() throws LatexExecutionException {
+    if (dependencyArchives == null) {
+      dependencyArchives = build.getDependencyArchives();
+    }
+    return dependencyArchives;
+  }
+
+  /**
+   * Returns the directory beside the working directory used to cache results of single steps.
+   */
+  private File getCacheDirectory() {
+    File workingDirectory = getWorkingDirectory();
+    return new File(workingDirectory.getParentFile(), workingDirectory.getName() + "-cache");
+  }
+
+  /**
+   * Returns the directory beside the working directory the resources of the dependencies are extracted to in overlay mode.
+   */
+  private File getDependencyDirectory() {
+    File workingDirectory = getWorkingDirectory();
+    return new File(workingDirectory.getParentFile(), workingDirectory.getName() + "-dependencies");
+  }
+
+  /**
+   * Returns the file storing the fingerprint of the last build.
+   */
+  private File getFingerprintFile() {
+    File workingDirectory = getWorkingDirectory();
+    return new File(workingDirectory.getParentFile(), workingDirectory.getName() + ".fingerprint");
+  }
+
+  /**
+   * Returns the file storing the checksums of the LaTeX source document and its included files of the last build.
+   */
+  private File getIncludeFile() {
+    File workingDirectory = getWorkingDirectory();
+    return new File(workingDirectory.getParentFile(), workingDirectory.getName() + ".includes");
+  }
+
+  /**
+   * Compares the checksums of the files included by the LaTeX source document with the last build. If only some of them changed, the LaTeX source document in the working directory is replaced by a
+   * copy declaring the changed files with \includeonly. The .aux files of the other included files are kept from the last build. Without {@link MathanLatexConfiguration#isKeepIntermediateFiles()
+   * kept intermediate files} the whole document is always compiled.
+   *
+   * @param sourceMainFile The LaTeX source document in the source directory.
+   * @param workingDirectory The working directory.
+   * @param mainFile The LaTeX source document in the working directory.
+   * @return <code>true</code> if only the changed included files are compiled.
+   */
+  private boolean prepareIncludeOnly(File sourceMainFile, File workingDirectory, File mainFile) {
+    File includeFile = getIncludeFile();
+    try {
+      includes = IncludeOnly.scan(sourceMainFile);
+      IncludeOnly previous = configuration.isKeepIntermediateFiles() ? IncludeOnly.read(includeFile) : null;
+      FileUtils.deleteQuietly(includeFile);
+      List<String> changed = includes.getChanged(previous, workingDirectory);
+      if (changed.isEmpty() || !IncludeOnly.write(sourceMainFile, mainFile, changed)) {
+        return false;
+      }
+      build.getLog().info(String.format("[mathan] compiling changed includes only: %s", String.join(",", changed)));
+      return true;
+    } catch (IOException e) {
+      build.getLog().warn(String.format("Could not compare included files with %s", includeFile.getAbsolutePath()), e);
+      FileUtils.deleteQuietly(includeFile);
+      return false;
+    }
+  }
+
+  /**
+   * Replaces the copy of the LaTeX source document declaring \includeonly with the original document. In overlay mode the copy is simply removed.
+   */
+  private void restoreMainFile(File sourceMainFile, File mainFile) throws LatexExecutionException {
+    try {
+      if (configuration.isOverlay()) {
+        Files.deleteIfExists(mainFile.toPath());
+      } else {
+        FileUtils.copyFile(sourceMainFile, mainFile);
+      }
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not restore %s", mainFile.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Returns the file storing the inputs recorded by the last build.
+   */
+  private File getInputManifestFile() {
+    File workingDirectory = getWorkingDirectory();
+    return new File(workingDirectory.getParentFile(), workingDirectory.getName() + ".inputs");
+  }
+
+  /**
+   * Checks if the settings of the build and all inputs recorded by the last build are unchanged.
+   */
+  private boolean isRecordedInputsUnchanged() {
+    try {
+      InputManifest manifest = InputManifest.read(getInputManifestFile());
+      return manifest != null && manifest.isUpToDate(recordedSettings);
+    } catch (IOException | RuntimeException e) {
+      build.getLog().warn(String.format("Could not read recorded inputs %s", getInputManifestFile().getAbsolutePath()), e);
+      return false;
+    }
+  }
+
+  /**
+   * Records the inputs of the build. These are the files recorded by the TeX engine in the .fls file and the bibliography databases and styles. Files in the working directory are recorded by their
+   * counterpart in the source directory, files written by the steps are ignored. The resources of the dependencies are ignored as well, as the archives of the dependencies are part of the settings.
+   * If the inputs cannot be recorded, the manifest is removed, so the next build is not skipped.
+   *
+   * @param source The directory containing the LaTeX source document.
+   * @param workingDirectory The working directory.
+   * @param mainFile The LaTeX source document.
+   */
+  private void recordInputs(File source, File workingDirectory, File mainFile) {
+    File manifestFile = getInputManifestFile();
+    String pureName = mainFile.getName().substring(0, mainFile.getName().lastIndexOf('.'));
+    File recording = new File(mainFile.getParentFile(), pureName + ".fls");
+    try {
+      if (!recording.exists()) {
+        build.getLog().warn(String.format("[mathan] %s not found, inputs are not recorded", recording.getName()));
+        FileUtils.deleteQuietly(manifestFile);
+        return;
+      }
+      Set<File> inputs = new LinkedHashSet<>();
+      for (File input : InputManifest.readRecording(recording)) {
+        addInput(inputs, input, source, workingDirectory);
+      }
+      for (String name : InputManifest.readBibliography(workingDirectory, pureName)) {
+        addInput(inputs, searchPath.locate(name), source, workingDirectory);
+      }
+      InputManifest manifest = InputManifest.record(recordedSettings, inputs);
+      manifest.store(manifestFile);
+      build.getLog().info(String.format("[mathan] recorded %s inputs", manifest.size()));
+    } catch (IOException e) {
+      build.getLog().warn(String.format("Could not record inputs in %s", manifestFile.getAbsolutePath()), e);
+      FileUtils.deleteQuietly(manifestFile);
+    }
+  }
+
+  private void addInput(Set<File> inputs, File input, File source, File workingDirectory) {
+    Path path = input.toPath().toAbsolutePath().normalize();
+    Path working = workingDirectory.toPath().toAbsolutePath().normalize();
+    if (path.startsWith(working)) {
+      File sourceFile = new File(source, working.relativize(path).toString());
+      if (sourceFile.isFile()) {
+        inputs.add(sourceFile);
+      }
+    } else if (!path.startsWith(getDependencyDirectory().toPath().toAbsolutePath().normalize())) {
+      inputs.add(path.toFile());
+    }
+  }
+
+  private File getArtifactFile() {
+    File targetDirectory = new File(build.getBasedir(), "target");
+    String version = classifier == null ? build.getVersion() : build.getVersion() + "-" + classifier;
+    String artifactName = String.format("%s-%s.%s", build.getArtifactId(), version, configuration.getOutputFormat());
+    return new File(targetDirectory, artifactName);
+  }
+
+  /**
+   * Sets the given artifact as artifact of the build or attaches it with the classifier of the document.
+   */
+  private void publishArtifact(File artifact) {
+    if (classifier == null) {
+      build.setArtifact(artifact);
+    } else {
+      build.attachArtifact(artifact, classifier);
+    }
+  }
+
   private void provideArtifact(File workingDirectory, String pureName) throws LatexExecutionException {
     File outputFile = new File(workingDirectory, pureName + "." + configuration.getOutputFormat());
     try {
-      File targetDirectory = new File(build.getBasedir(), "target");
-      String artifactName = String.format("%s-%s.%s", build.getArtifactId(), build.getVersion(), configuration.getOutputFormat());
-      File artifact = new File(targetDirectory, artifactName);
+      File artifact = getArtifactFile();
       FileUtils.copyFile(outputFile, artifact);
-      build.setArtifact(artifact);
+      publishArtifact(artifact);
     } catch (IOException e) {
       throw new LatexExecutionException(String.format("Could not copy output file %s to target.", outputFile.getAbsolutePath()), e);
     }
@@ -133,6 +894,8 @@ public class MathanLatexRunner {
     if (!configuration.isKeepIntermediateFiles()) {
       try {
         FileUtils.deleteDirectory(workingDirectory);
+        FileUtils.deleteDirectory(getCacheDirectory());
+        FileUtils.deleteDirectory(getDependencyDirectory());
       } catch (IOException e) {
         build.getLog().warn(String.format("Could not delete directory %s", workingDirectory.getAbsolutePath()), e);
       }
@@ -140,7 +903,7 @@ public class MathanLatexRunner {
   }
 
   private File createWorkingDirectory() throws LatexExecutionException {
-    File workingDirectory = new File(build.getBasedir(), "target/latex/");
+    File workingDirectory = getWorkingDirectory();
     if (!workingDirectory.exists() && !workingDirectory.mkdirs()) {
       throw new LatexExecutionException(String.format("Could not create directory %s", workingDirectory.getAbsolutePath()));
     }
@@ -148,28 +911,153 @@ public class MathanLatexRunner {
   }
 
 
+  /**
+   * Provides the resources of the dependencies in the working directory. If {@link MathanLatexConfiguration#isDependencyCache()} is enabled, the resources are provided from the dependency cache.
+   * The archives are extracted concurrently. If several archives contain the same path, the file of the last archive in the order of the dependencies is used.
+   *
+   * @param workingDirectory The working directory.
+   * @throws LatexExecutionException If a dependency could not be resolved or extracted.
+   */
+  private void resolveDependencies(File workingDirectory) throws LatexExecutionException {
+    List<File> archives = getDependencyArchives();
+    if (archives.isEmpty()) {
+      return;
+    }
+    ResourceFilter filter = build.getResourceFilter();
+    DependencyCache cache = configuration.isDependencyCache() ? new DependencyCache(getDependencyCacheDirectory(), configuration.getDependencyCacheSize() * 1024 * 1024, build.getLog()) : null;
+    List<Set<String>> skipped = getOverwrittenResources(archives, filter);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(archives.size(), Runtime.getRuntime().availableProcessors()));
+    try {
+      List<Future<List<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < archives.size(); i++) {
+        File archive = archives.get(i);
+        Set<String> skippedResources = skipped.get(i);
+        futures.add(executor.submit(() -> cache == null ? Utils.extractArchive(archive, workingDirectory, filter, skippedResources)
+            : cache.materialize(archive, filter, workingDirectory, skippedResources)));
+      }
+      for (int i = 0; i < archives.size(); i++) {
+        List<String> resources;
+        try {
+          resources = futures.get(i).get();
+        } catch (ExecutionException e) {
+          throw new LatexExecutionException(String.format("Could not copy artifact %s", archives.get(i).getName()), e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new LatexExecutionException(String.format("Could not copy artifact %s", archives.get(i).getName()), e);
+        }
+        for (String resource : resources) {
+          build.getLog().info(String.format("[mathan] including resource %s", resource));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Determines for every archive the resources which are overwritten by a later archive, so the result does not depend on the order the archives are extracted in.
+   *
+   * @param archives The archives in the order of the dependencies.
+   * @param filter The filter for the resources.
+   * @return The overwritten resources for every archive.
+   * @throws LatexExecutionException If an archive could not be read.
+   */
+  private static List<Set<String>> getOverwrittenResources(List<File> archives, ResourceFilter filter) throws LatexExecutionException {
+    List<List<String>> resources = new ArrayList<>();
+    Map<String, Integer> owners = new HashMap<>();
+    for (int i = 0; i < archives.size(); i++) {
+      List<String> paths;
+      try {
+        paths = archives.size() == 1 ? Collections.emptyList() : Utils.listArchive(archives.get(i), filter);
+      } catch (IOException e) {
+        throw new LatexExecutionException(String.format("Could not copy artifact %s", archives.get(i).getName()), e);
+      }
+      resources.add(paths);
+      for (String path : paths) {
+        owners.put(path, i);
+      }
+    }
+    List<Set<String>> overwritten = new ArrayList<>();
+    for (int i = 0; i < archives.size(); i++) {
+      Set<String> paths = new HashSet<>();
+      for (String path : resources.get(i)) {
+        if (owners.get(path) != i) {
+          paths.add(path);
+        }
+      }
+      overwritten.add(paths);
+    }
+    return overwritten;
+  }
+
+  private File getDependencyCacheDirectory() {
+    if (configuration.getDependencyCacheDirectory() == null || configuration.getDependencyCacheDirectory().isEmpty()) {
+      return new File(System.getProperty("user.home"), ".mathan/cache");
+    }
+    return new File(configuration.getDependencyCacheDirectory());
+  }
+
   private void copySources(File source, File workingDirectory) throws LatexExecutionException {
     try {
-      FileUtils.copyDirectory(source, workingDirectory);
+      new SourceSynchronizer(build.getLog()).synchronize(source, workingDirectory);
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not copy context from %s to %s", source.getAbsolutePath(), workingDirectory.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Creates the directories of the source directory in the working directory. In overlay mode the sources are not copied, but TeX writes the .aux files of included documents into the same relative
+   * directory.
+   */
+  private void createDirectories(File source, File workingDirectory) throws LatexExecutionException {
+    try (Stream<Path> paths = Files.walk(source.toPath())) {
+      for (Path directory : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+        Files.createDirectories(workingDirectory.toPath().resolve(source.toPath().relativize(directory).toString()));
+      }
+    } catch (IOException e) {
+      throw new LatexExecutionException(String.format("Could not create directories of %s in %s", source.getAbsolutePath(), workingDirectory.getAbsolutePath()), e);
+    }
+  }
+
+  private void createDependencyDirectory(File dependencyDirectory) throws LatexExecutionException {
+    try {
+      FileUtils.deleteDirectory(dependencyDirectory);
     } catch (IOException e) {
-      throw new LatexExecutionException(String.format("Could not copy context from %s to %s", source.getAbsolutePath(), workingDirectory.getAbsolutePath()));
+      throw new LatexExecutionException(String.format("Could not delete directory %s", dependencyDirectory.getAbsolutePath()), e);
+    }
+    if (!dependencyDirectory.mkdirs()) {
+      throw new LatexExecutionException(String.format("Could not create directory %s", dependencyDirectory.getAbsolutePath()));
     }
   }
 
+  /**
+   * Resolves the LaTeX source document. In overlay mode the document is searched in the source directory, but the returned file is located in the working directory as the steps are executed there.
+   */
   private File resolveMainFile(File source, File workingDirectory) throws LatexExecutionException {
+    File directory = configuration.isOverlay() ? source : workingDirectory;
     File mainFile;
-    if (configuration.getTexFile() == null || configuration.getTexFile().isEmpty()) {
-      mainFile = Utils.getFile(workingDirectory, Constants.FORMAT_TEX); //TODO: parameterize the name of the source document?
+    if (document == null) {
+      mainFile = Utils.getFile(directory, Constants.FORMAT_TEX); //TODO: parameterize the name of the source document?
     } else {
-      mainFile = new File(workingDirectory, configuration.getTexFile());
+      mainFile = new File(directory, document);
     }
 
     if (mainFile == null || !mainFile.exists()) {
       throw new LatexExecutionException(String.format("No LaTeX source document found in %s", source.getAbsolutePath()));
     }
+    if (configuration.isOverlay()) {
+      mainFile = new File(workingDirectory, source.toPath().relativize(mainFile.toPath()).toString());
+    }
     return mainFile;
   }
 
+  /**
+   * Locates the given file of the working directory on the search path of the current build.
+   */
+  private File locate(File file) {
+    return searchPath.locate(getWorkingDirectory().toPath().relativize(file.toPath()).toString());
+  }
+
   private FileWriter createLog(File workingDirectory) throws LatexExecutionException {
     FileWriter completeLog;
     try {
@@ -199,19 +1087,32 @@ public class MathanLatexRunner {
   }
 
   private void appendLogTo(FileWriter completeLog, File workingDirectory, String pureName, Step step) throws LatexExecutionException {
+    try {
+      completeLog.write(readStepLog(workingDirectory, pureName, step));
+    } catch (IOException e) {
+      throw new LatexExecutionException("Could not write mathan-latext-mojo.log", e);
+    }
+  }
+
+  /**
+   * Reads and removes the log file written by the given step.
+   *
+   * @return The content of the log file or an empty string if the step did not write a log file.
+   */
+  private String readStepLog(File workingDirectory, String pureName, Step step) throws LatexExecutionException {
     if (step.getLogExtension() == null) {
-      return;
+      return "";
     }
     File stepLog = new File(workingDirectory, pureName + "." + step.getLogExtension());
-    if (stepLog.exists()) {
-      try {
-        FileReader reader = new FileReader(stepLog);
-        IOUtils.copy(reader, completeLog);
-        reader.close();
-        stepLog.delete();
-      } catch (IOException e) {
-        throw new LatexExecutionException("Could not write mathan-latext-mojo.log", e);
-      }
+    if (!stepLog.exists()) {
+      return "";
+    }
+    try {
+      String content = FileUtils.readFileToString(stepLog, Charset.defaultCharset());
+      stepLog.delete();
+      return content;
+    } catch (IOException e) {
+      throw new LatexExecutionException("Could not write mathan-latext-mojo.log", e);
     }
   }
 
@@ -222,31 +1123,53 @@ public class MathanLatexRunner {
    * @throws LatexExecutionException If the configuration is invalid.
    */
   private List<Step> configureSteps() throws LatexExecutionException {
+    return configureSteps(true);
+  }
+
+  /**
+   * Configures the steps to execute and checks the configuration for the build.
+   *
+   * @param resolveExecutables <code>false</code> if the executables of the steps should not be resolved, e.g. if the steps are only described.
+   * @return The steps to execute.
+   * @throws LatexExecutionException If the configuration is invalid.
+   */
+  private List<Step> configureSteps(boolean resolveExecutables) throws LatexExecutionException {
     // check source directory
     configureSourceDirectory();
     // check output format
     configureOutputFormat();
+    latexStepIds = configuration.getLatexSteps();
+    buildStepIds = configuration.getBuildSteps();
+    // apply selected profile
+    Profile profile = configureProfile();
     // setup step registry
     configureStepRegistry();
+    if (profile != null) {
+      configureProfileArguments(profile);
+    }
     // setup latex steps
     List<Step> listLatexSteps = configureLatexSteps();
+    latexSteps = listLatexSteps;
     List<Step> listExecutables = new ArrayList<>(listLatexSteps);
     // setup build steps
     final List<Step> listBuildSteps = configureBuildSteps(listLatexSteps, listExecutables);
     // configure pre-defined steps
-    configureStyleFile(Step.STEP_MAKEINDEX, configuration.getMakeIndexStyleFile());
-    configureStyleFile(Step.STEP_MAKEINDEXNOMENCL, configuration.getMakeIndexNomenclStyleFile());
+    configureStyleFile(stepRegistry.get(Step.STEP_MAKEINDEX.getId()), configuration.getMakeIndexStyleFile());
+    configureStyleFile(stepRegistry.get(Step.STEP_MAKEINDEXNOMENCL.getId()), configuration.getMakeIndexNomenclStyleFile());
     // check if executables are available
-    checkExecutables(listExecutables);
+    if (resolveExecutables) {
+      checkExecutables(listExecutables);
+    }
+    executables = listExecutables;
     return listBuildSteps;
   }
 
   private List<Step> configureBuildSteps(List<Step> listLatexSteps, List<Step> listExecutables) throws LatexExecutionException {
-    if (configuration.getBuildSteps() == null) {
-      configuration.setBuildSteps(DEFAULT_BUILD_STEPS);
+    if (buildStepIds == null) {
+      buildStepIds = DEFAULT_BUILD_STEPS;
     }
     List<Step> listBuildSteps = new ArrayList<>();
-    for (String buildStep : configuration.getBuildSteps()) {
+    for (String buildStep : buildStepIds) {
       if (Constants.LaTeX.equals(buildStep)) {
         listBuildSteps.addAll(listLatexSteps);
       } else {
@@ -262,23 +1185,23 @@ public class MathanLatexRunner {
   }
 
   private List<Step> configureLatexSteps() throws LatexExecutionException {
-    if (configuration.getLatexSteps() == null) {
+    if (latexStepIds == null) {
       switch (configuration.getOutputFormat()) {
         case Constants.FORMAT_DVI:
-          configuration.setLatexSteps(new String[]{Step.STEP_LATEX.getId()});
+          latexStepIds = new String[]{Step.STEP_LATEX.getId()};
           break;
         case Constants.FORMAT_PS:
-          configuration.setLatexSteps(new String[]{Step.STEP_LATEX.getId(), Step.STEP_DVIPS.getId()});
+          latexStepIds = new String[]{Step.STEP_LATEX.getId(), Step.STEP_DVIPS.getId()};
           break;
         case Constants.FORMAT_PDF:
-          configuration.setLatexSteps(new String[]{Step.STEP_PDFLATEX.getId()});
+          latexStepIds = new String[]{Step.STEP_PDFLATEX.getId()};
           break;
         default:
           throw new LatexExecutionException("Invalid output format");
       }
     }
     List<Step> listLatexSteps = new ArrayList<>();
-    for (String latexStep : configuration.getLatexSteps()) {
+    for (String latexStep : latexStepIds) {
       Step step = stepRegistry.get(latexStep);
       if (step == null) {
         throw new LatexExecutionException(String.format("Step '%s' defined in 'latexSteps' is unknown. Consider to provide the definition of the step with the configuration 'steps'.", latexStep));
@@ -289,9 +1212,67 @@ public class MathanLatexRunner {
   }
 
   private void configureStepRegistry() {
-    DEFAULT_EXECUTABLES.forEach(e -> stepRegistry.put(e.getId(), e));
+    DEFAULT_EXECUTABLES.forEach(e -> stepRegistry.put(e.getId(), e.copy()));
     if (configuration.getSteps() != null) {
-      Arrays.asList(configuration.getSteps()).forEach(e -> stepRegistry.put(e.getId(), e));
+      Arrays.asList(configuration.getSteps()).forEach(e -> stepRegistry.put(e.getId(), e.copy()));
+    }
+  }
+
+  /**
+   * Applies the settings of the selected profile to the configuration. User-defined profiles take precedence over the predefined profiles with the same id.
+   *
+   * @return The selected profile or <code>null</code> if no profile is selected.
+   * @throws LatexExecutionException If the selected profile is not defined.
+   */
+  private Profile configureProfile() throws LatexExecutionException {
+    String id = configuration.getProfile();
+    if (id == null || id.trim().isEmpty()) {
+      return null;
+    }
+    Map<String, Profile> profiles = new LinkedHashMap<>();
+    profiles.put(Profile.DRAFT, Profile.createDraft());
+    profiles.put(Profile.RELEASE, Profile.createRelease());
+    if (configuration.getProfiles() != null) {
+      Arrays.asList(configuration.getProfiles()).forEach(p -> profiles.put(p.getId(), p));
+    }
+    Profile profile = profiles.get(id.trim());
+    if (profile == null) {
+      throw new LatexExecutionException(String.format("Profile '%s' is unknown. Available profiles are: %s", id, String.join(", ", profiles.keySet())));
+    }
+    if (profile.getLatexSteps() != null) {
+      latexStepIds = profile.getLatexSteps();
+    }
+    if (profile.getBuildSteps() != null) {
+      buildStepIds = profile.getBuildSteps();
+    }
+    if (profile.getConvergence() != null) {
+      configuration.setConvergence(profile.getConvergence());
+    }
+    if (profile.getMaxLatexPasses() != null) {
+      configuration.setMaxLatexPasses(profile.getMaxLatexPasses());
+    }
+    if (profile.getDraftPasses() != null) {
+      configuration.setDraftPasses(profile.getDraftPasses());
+    }
+    return profile;
+  }
+
+  /**
+   * Replaces the steps in the registry whose arguments are overridden by the given profile with copies using these arguments, so the predefined steps are not modified.
+   *
+   * @param profile The selected profile.
+   * @throws LatexExecutionException If the profile overrides the arguments of an unknown step.
+   */
+  private void configureProfileArguments(Profile profile) throws LatexExecutionException {
+    if (profile.getArguments() == null) {
+      return;
+    }
+    for (Map.Entry<String, String> entry : profile.getArguments().entrySet()) {
+      Step step = stepRegistry.get(entry.getKey());
+      if (step == null) {
+        throw new LatexExecutionException(String.format("Step '%s' defined in the arguments of profile '%s' is unknown.", entry.getKey(), profile.getId()));
+      }
+      stepRegistry.put(step.getId(), step.withArguments(entry.getValue()));
     }
   }
 
@@ -342,7 +1323,8 @@ public class MathanLatexRunner {
 
   /**
    * Executes a single step and executes the configured command with the specified input file. If the step is {@link Step#isOptional() is optional} the step is not executed if the input file is not
-   * found. E.g. if bibtex step is executed and there are no references defined.
+   * found. E.g. if bibtex step is executed and there are no references defined. If {@link MathanLatexConfiguration#isPlanSteps()} is enabled, an optional step the document does not need is skipped
+   * without starting a process.
    *
    * @param executionStep The step to execute.
    * @param workingDirectory The working directory for the command execution.
@@ -350,22 +1332,77 @@ public class MathanLatexRunner {
    * @throws LatexExecutionException If an error occurred during the execution of the command.
    */
   private void executeStep(Step executionStep, File workingDirectory, File texFile) throws LatexExecutionException {
+    executeStep(executionStep, workingDirectory, texFile, false);
+  }
+
+  /**
+   * Executes a single step like {@link #executeStep(Step, File, File)}.
+   *
+   * @param executionStep The step to execute.
+   * @param workingDirectory The working directory for the command execution.
+   * @param texFile The input file to use.
+   * @param draft Flag indicating if the LaTeX pass should only write the auxiliary files but no output file.
+   * @throws LatexExecutionException If an error occurred during the execution of the command.
+   */
+  private void executeStep(Step executionStep, File workingDirectory, File texFile, boolean draft) throws LatexExecutionException {
+    if (configuration.isPlanSteps() && executionStep.isOptional()) {
+      String reason = StepPlanner.getSkipReason(executionStep, texFile);
+      if (reason != null) {
+        build.getLog().info(String.format("[mathan] execution skipped: %s (%s)", executionStep.getId(), reason));
+        return;
+      }
+      build.getLog().info(String.format("[mathan] execution planned: %s", executionStep.getId()));
+    }
     File exec = Utils.getExecutable(configuration.getTexBin(), executionStep.getOperatingSystemName());
+    StepCache stepCache = configuration.isStepCache() ? new StepCache(getCacheDirectory(), searchPath) : null;
+    String inputChecksum = stepCache == null ? null : stepCache.getInputChecksum(executionStep, texFile, exec);
+    if (inputChecksum != null && stepCache.restore(executionStep, texFile, inputChecksum)) {
+      build.getLog().info(String.format("[mathan] execution cached: %s", executionStep.getId()));
+      return;
+    }
     // split command into array
     List<String> list = new ArrayList<>();
     list.add(exec.getAbsolutePath());
     Utils.tokenizeEscapedString(Step.getArguments(executionStep, texFile), list);
+    if (recordedSettings != null && executionStep.isLatexPass()) {
+      list.add(1, "-recorder");
+    }
+    if (draft) {
+      list.add(1, getDraftOption(executionStep));
+    }
+    if (configuration.isPrecompilePreamble() && FormatCache.supports(executionStep)) {
+      String format = getFormat(executionStep, workingDirectory, texFile, exec);
+      if (format != null) {
+        int index = 1;
+        while (index < list.size() && list.get(index).startsWith("-")) {
+          index++;
+        }
+        list.add(index, "&" + format);
+      }
+    }
     String[] command = list.toArray(new String[0]);
 
     String prefix = "[mathan][" + executionStep.getId() + "]";
 
     File inputFile = Step.getInputFile(executionStep, texFile);
+    ErrorMonitor errorMonitor = configuration.getMaxErrors() > 0 && executionStep.isLatexPass() ? new ErrorMonitor(configuration.getMaxErrors()) : null;
+    OutputStream redirectOutput = errorMonitor == null ? build.getRedirectOutput(prefix) : new TeeOutputStream(build.getRedirectOutput(prefix), errorMonitor);
+    ProcessWatchdog watchdog = createWatchdog(executionStep);
     int exitValue = 0;
     try {
       build.getLog().info("[mathan] execution: " + executionStep.getId());
       build.getLog().info(Arrays.toString(command));
-      exitValue = new ProcessExecutor().command(command).directory(workingDirectory).redirectOutput(build.getRedirectOutput(prefix))
-          .redirectError(build.getRedirectError(prefix)).destroyOnExit().execute().getExitValue();
+      StartedProcess process = new ProcessExecutor().command(command).directory(workingDirectory).environment(searchPath.getEnvironment()).redirectOutput(watchdog.watch(redirectOutput))
+          .redirectError(watchdog.watch(build.getRedirectError(prefix))).destroyOnExit().start();
+      if (errorMonitor != null) {
+        errorMonitor.attach(process.getProcess());
+      }
+      exitValue = watchdog.waitFor(process);
+    } catch (LatexExecutionException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LatexExecutionException(String.format("Execution of step %s interrupted", executionStep.getId()), e);
     } catch (Exception e) {
       if (executionStep.isOptional()) {
         build.getLog().info("[mathan] execution skipped: " + executionStep.getId());
@@ -373,8 +1410,11 @@ public class MathanLatexRunner {
         throw new LatexExecutionException("Building the project: ", e);
       }
     }
+    if (errorMonitor != null && errorMonitor.isAborted()) {
+      throw new LatexExecutionException(String.format("Execution of step %s aborted after %s errors:%n%s", executionStep.getId(), errorMonitor.getErrors(), errorMonitor.getContext()));
+    }
     if (exitValue != 0) {
-      if (inputFile.exists()) {
+      if (locate(inputFile).exists()) {
         if (configuration.isHaltOnError()) {
           throw new LatexExecutionException(String.format("Execution of step %s failed. Process finished with exit code %s.", executionStep.getId(), exitValue));
         } else {
@@ -383,7 +1423,103 @@ public class MathanLatexRunner {
       } else {
         build.getLog().info("[mathan] execution skipped: " + executionStep.getId());
       }
+    } else if (inputChecksum != null) {
+      try {
+        stepCache.store(executionStep, texFile, inputChecksum);
+      } catch (IOException e) {
+        build.getLog().warn(String.format("Could not cache the result of step %s", executionStep.getId()), e);
+      }
+    }
+  }
+
+  /**
+   * Creates the watchdog for the given step. The timeout of the step is limited by the time remaining for the build if a {@link MathanLatexConfiguration#getBuildTimeout() build timeout} is set.
+   *
+   * @param executionStep The step to execute.
+   * @return The watchdog.
+   * @throws LatexExecutionException If the build timeout is already exceeded.
+   */
+  private ProcessWatchdog createWatchdog(Step executionStep) throws LatexExecutionException {
+    long timeout = executionStep.getTimeout() > 0 ? executionStep.getTimeout() : configuration.getStepTimeout();
+    long idleTimeout = executionStep.getIdleTimeout() > 0 ? executionStep.getIdleTimeout() : configuration.getIdleTimeout();
+    if (buildDeadline > 0) {
+      long remaining = TimeUnit.MILLISECONDS.toSeconds(buildDeadline - System.currentTimeMillis());
+      if (remaining <= 0) {
+        throw new LatexExecutionException(String.format("Build timed out after %s seconds before step %s.", configuration.getBuildTimeout(), executionStep.getId()));
+      }
+      timeout = timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+    return new ProcessWatchdog(executionStep, timeout, idleTimeout);
+  }
+
+  /**
+   * Returns the option of the TeX engine of the given step for a draft pass or <code>null</code> if {@link MathanLatexConfiguration#isDraftPasses() draft passes} are disabled or not supported by
+   * the engine.
+   */
+  private String getDraftOption(Step step) {
+    if (!configuration.isDraftPasses() || !step.isLatexPass() || !Constants.FORMAT_PDF.equals(configuration.getOutputFormat())) {
+      return null;
+    }
+    return DRAFT_OPTIONS.get(step.getName());
+  }
+
+  /**
+   * Provides the precompiled preamble of the document for the engine of the given step in the working directory. The format is restored from the cache or dumped once per build if the preamble, the
+   * engine or a file read by the preamble changed.
+   *
+   * @param executionStep The LaTeX pass to execute.
+   * @param workingDirectory The working directory for the command execution.
+   * @param texFile The LaTeX source document.
+   * @param exec The executable of the engine.
+   * @return The name of the format or <code>null</code> if no format is available.
+   * @throws LatexExecutionException If the LaTeX source document could not be read.
+   */
+  private String getFormat(Step executionStep, File workingDirectory, File texFile, File exec) throws LatexExecutionException {
+    String format = formats.get(executionStep.getName());
+    if (format == null) {
+      format = "";
+      String checksum = FormatCache.getChecksum(locate(texFile), exec);
+      if (checksum == null) {
+        build.getLog().warn(String.format("[mathan] no preamble found in %s, format not precompiled", texFile.getName()));
+      } else {
+        String formatName = FormatCache.getFormatName(executionStep, texFile);
+        FormatCache formatCache = new FormatCache(getCacheDirectory());
+        if (formatCache.restore(formatName, checksum, workingDirectory)) {
+          build.getLog().info(String.format("[mathan] precompiled format cached: %s", formatName));
+          format = formatName;
+        } else if (dumpFormat(executionStep, workingDirectory, texFile, exec, formatCache, formatName, checksum)) {
+          format = formatName;
+        }
+      }
+      formats.put(executionStep.getName(), format);
+    }
+    return format.isEmpty() ? null : format;
+  }
+
+  private boolean dumpFormat(Step executionStep, File workingDirectory, File texFile, File exec, FormatCache formatCache, String formatName, String checksum) throws LatexExecutionException {
+    List<String> list = new ArrayList<>();
+    list.add(exec.getAbsolutePath());
+    Utils.tokenizeEscapedString(FormatCache.getDumpArguments(executionStep, texFile), list);
+    String[] command = list.toArray(new String[0]);
+    String prefix = "[mathan][" + executionStep.getId() + "]";
+    ProcessWatchdog watchdog = createWatchdog(executionStep);
+    try {
+      build.getLog().info("[mathan] precompiling format: " + formatName);
+      build.getLog().info(Arrays.toString(command));
+      StartedProcess process = new ProcessExecutor().command(command).directory(workingDirectory).environment(searchPath.getEnvironment()).redirectOutput(watchdog.watch(build.getRedirectOutput(prefix)))
+          .redirectError(watchdog.watch(build.getRedirectError(prefix))).destroyOnExit().start();
+      int exitValue = watchdog.waitFor(process);
+      if (exitValue == 0 && formatCache.store(formatName, checksum, workingDirectory, Arrays.asList(texFile, locate(texFile)))) {
+        return true;
+      }
+      build.getLog().warn(String.format("[mathan] precompiling format %s failed with exit code=%s, using the preamble of the document", formatName, exitValue));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LatexExecutionException(String.format("Precompiling format %s interrupted", formatName), e);
+    } catch (Exception e) {
+      build.getLog().warn(String.format("[mathan] precompiling format %s failed, using the preamble of the document", formatName), e);
     }
+    return false;
   }
 
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.zeroturnaround.exec.StartedProcess;
+
+/**
+ * Waits for the process of a step and destroys it if it runs longer than its timeout or if it did not write any output for longer than its idle timeout. (e.g. a TeX engine waiting for input at
+ * a prompt)
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class ProcessWatchdog {
+
+  /**
+   * The interval for checking the timeouts while waiting for the process.
+   */
+  private static final long POLL_INTERVAL = 1000;
+
+  private final Step step;
+  private final long timeout;
+  private final long idleTimeout;
+  private volatile long lastActivity;
+
+  /**
+   * Creates a watchdog for the given step.
+   *
+   * @param step The step executed.
+   * @param timeout The timeout in seconds or 0 for no limit.
+   * @param idleTimeout The idle timeout in seconds or 0 for no limit.
+   */
+  ProcessWatchdog(Step step, long timeout, long idleTimeout) {
+    this.step = step;
+    this.timeout = timeout;
+    this.idleTimeout = idleTimeout;
+    this.lastActivity = System.currentTimeMillis();
+  }
+
+  /**
+   * Wraps the given stream so that every output of the process is recorded as activity.
+   *
+   * @param stream The stream the output of the process is redirected to.
+   * @return The wrapped stream.
+   */
+  OutputStream watch(OutputStream stream) {
+    return new ProxyOutputStream(stream) {
+      @Override
+      protected void beforeWrite(int n) {
+        lastActivity = System.currentTimeMillis();
+      }
+    };
+  }
+
+  /**
+   * Waits for the given process to finish. The process is destroyed if a timeout is exceeded or the current thread is interrupted.
+   *
+   * @param process The started process of the step.
+   * @return The exit value of the process.
+   * @throws LatexExecutionException If the process was destroyed because a timeout was exceeded.
+   * @throws ExecutionException If the execution of the process failed.
+   * @throws InterruptedException If the current thread was interrupted while waiting.
+   */
+  int waitFor(StartedProcess process) throws LatexExecutionException, ExecutionException, InterruptedException {
+    long start = System.currentTimeMillis();
+    lastActivity = start;
+    while (true) {
+      try {
+        return process.getFuture().get(POLL_INTERVAL, TimeUnit.MILLISECONDS).getExitValue();
+      } catch (InterruptedException e) {
+        destroy(process);
+        throw e;
+      } catch (TimeoutException e) {
+        long now = System.currentTimeMillis();
+        if (timeout > 0 && now - start > TimeUnit.SECONDS.toMillis(timeout)) {
+          destroy(process);
+          throw new LatexExecutionException(String.format("Execution of step %s timed out after %s seconds.", step.getId(), timeout));
+        }
+        if (idleTimeout > 0 && now - lastActivity > TimeUnit.SECONDS.toMillis(idleTimeout)) {
+          destroy(process);
+          throw new LatexExecutionException(String.format("Execution of step %s was aborted as it did not write any output for %s seconds. The process may be waiting for input.", step.getId(),
+              idleTimeout));
+        }
+      }
+    }
+  }
+
+  private static void destroy(StartedProcess process) {
+    process.getProcess().destroyForcibly();
+    process.getFuture().cancel(true);
+  }
+}
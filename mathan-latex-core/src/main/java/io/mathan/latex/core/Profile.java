@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A named set of settings overriding the configuration of a build. A profile can override the arguments of steps, the steps executed and the strategy for LaTeX passes. Settings which are not set in a
+ * profile are taken from the configuration. The profile of a build is selected with {@link MathanLatexConfiguration#getProfile()} or the property {@value #PROPERTY}.
+ *
+ * <p>There are two predefined profiles which can be overridden by user-defined profiles with the same id: {@value #DRAFT} for fast preview builds and {@value #RELEASE} for the final document.</p>
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+public class Profile implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The name of the Maven or Gradle property selecting the profile.
+   */
+  public static final String PROPERTY = "mathan.profile";
+
+  /**
+   * The id of the predefined profile for preview builds: a single LaTeX pass without SyncTeX and with images replaced by frames (draft option of graphicx).
+   */
+  public static final String DRAFT = "draft";
+
+  /**
+   * The id of the predefined profile for release builds: all configured passes without SyncTeX and with maximum compression of the PDF written by pdflatex.
+   */
+  public static final String RELEASE = "release";
+
+  private static final List<String> ENGINES = Arrays.asList(Step.STEP_LATEX.getId(), Step.STEP_PDFLATEX.getId(), Step.STEP_XELATEX.getId(), Step.STEP_LULATEX.getId());
+
+  /**
+   * A unique id.
+   */
+  private String id;
+
+  /**
+   * The arguments of steps by the id of the step. The same placeholders as for {@link Step#getArguments()} can be used.
+   */
+  private Map<String, String> arguments;
+
+  /**
+   * The list of tools to be executed to create the output format. (without bibtex, biber, makeindex, etc.)
+   */
+  private String[] latexSteps;
+
+  /**
+   * The list of tools to be executed in the build. (including bibtex, biber, makeindex, etc.). Optional steps which should not run in this profile are simply omitted.
+   */
+  private String[] buildSteps;
+
+  /**
+   * Overrides {@link MathanLatexConfiguration#isConvergence()}.
+   */
+  private Boolean convergence;
+
+  /**
+   * Overrides {@link MathanLatexConfiguration#getMaxLatexPasses()}.
+   */
+  private Integer maxLatexPasses;
+
+  /**
+   * Overrides {@link MathanLatexConfiguration#isDraftPasses()}.
+   */
+  private Boolean draftPasses;
+
+  public Profile() {
+
+  }
+
+  /**
+   * Creates the predefined profile {@value #DRAFT}.
+   *
+   * @return The profile.
+   */
+  static Profile createDraft() {
+    Profile profile = new Profile();
+    profile.setId(DRAFT);
+    Map<String, String> arguments = new HashMap<>();
+    for (String engine : ENGINES) {
+      arguments.put(engine, "-interaction=nonstopmode \\PassOptionsToPackage{draft}{graphicx}\\input{%input}");
+    }
+    profile.setArguments(arguments);
+    profile.setBuildSteps(new String[]{Constants.LaTeX});
+    profile.setConvergence(false);
+    profile.setDraftPasses(false);
+    return profile;
+  }
+
+  /**
+   * Creates the predefined profile {@value #RELEASE}.
+   *
+   * @return The profile.
+   */
+  static Profile createRelease() {
+    Profile profile = new Profile();
+    profile.setId(RELEASE);
+    Map<String, String> arguments = new HashMap<>();
+    for (String engine : ENGINES) {
+      arguments.put(engine, "-interaction=nonstopmode %input");
+    }
+    arguments.put(Step.STEP_PDFLATEX.getId(), "-interaction=nonstopmode \\pdfcompresslevel=9\\pdfobjcompresslevel=2\\input{%input}");
+    profile.setArguments(arguments);
+    profile.setDraftPasses(false);
+    return profile;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public Map<String, String> getArguments() {
+    return arguments;
+  }
+
+  public void setArguments(Map<String, String> arguments) {
+    this.arguments = arguments;
+  }
+
+  public String[] getLatexSteps() {
+    return latexSteps;
+  }
+
+  public void setLatexSteps(String[] latexSteps) {
+    this.latexSteps = latexSteps;
+  }
+
+  public String[] getBuildSteps() {
+    return buildSteps;
+  }
+
+  public void setBuildSteps(String[] buildSteps) {
+    this.buildSteps = buildSteps;
+  }
+
+  public Boolean getConvergence() {
+    return convergence;
+  }
+
+  public void setConvergence(Boolean convergence) {
+    this.convergence = convergence;
+  }
+
+  public Integer getMaxLatexPasses() {
+    return maxLatexPasses;
+  }
+
+  public void setMaxLatexPasses(Integer maxLatexPasses) {
+    this.maxLatexPasses = maxLatexPasses;
+  }
+
+  public Boolean getDraftPasses() {
+    return draftPasses;
+  }
+
+  public void setDraftPasses(Boolean draftPasses) {
+    this.draftPasses = draftPasses;
+  }
+}
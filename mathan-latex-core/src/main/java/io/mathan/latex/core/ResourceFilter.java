@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Filter for the resources of a dependency using Ant-style include and exclude patterns like a Maven FileSet or a Gradle file tree. The patterns are evaluated against the names of the entries in
+ * the archive of the dependency, so no file has to be extracted to decide if it is included.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+public class ResourceFilter implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Files of version control systems and operating systems excluded by default. (like the default excludes of Maven and Gradle)
+   */
+  private static final List<String> DEFAULT_EXCLUDES = Arrays.asList(
+      "**/*~", "**/#*#", "**/.#*", "**/%*%", "**/._*", "**/CVS", "**/CVS/**", "**/.cvsignore", "**/SCCS", "**/SCCS/**", "**/vssver.scc", "**/.svn", "**/.svn/**", "**/.DS_Store", "**/.git",
+      "**/.git/**", "**/.gitattributes", "**/.gitignore", "**/.gitmodules", "**/.hg", "**/.hg/**", "**/.hgignore", "**/.hgsub", "**/.hgsubstate", "**/.hgtags", "**/.bzr", "**/.bzr/**",
+      "**/.bzrignore");
+
+  private final List<String> includes;
+  private final List<String> excludes;
+  private final boolean useDefaultExcludes;
+  private transient List<Pattern> includePatterns;
+  private transient List<Pattern> excludePatterns;
+
+  /**
+   * Creates a filter with the given patterns.
+   *
+   * @param includes The include patterns. If empty, all files are included.
+   * @param excludes The exclude patterns.
+   * @param useDefaultExcludes Flag indicating if files of version control systems should be excluded.
+   */
+  public ResourceFilter(Collection<String> includes, Collection<String> excludes, boolean useDefaultExcludes) {
+    this.includes = includes == null ? Collections.emptyList() : new ArrayList<>(includes);
+    this.excludes = excludes == null ? Collections.emptyList() : new ArrayList<>(excludes);
+    this.useDefaultExcludes = useDefaultExcludes;
+  }
+
+  /**
+   * Creates the filter used if no resources are configured. It includes all files with one of the {@link Constants#RESOURCES_DEFAULT_EXTENSTIONS default extensions}.
+   *
+   * @return The filter.
+   */
+  public static ResourceFilter createDefault() {
+    List<String> includes = new ArrayList<>();
+    for (String include : Constants.RESOURCES_DEFAULT_EXTENSTIONS) {
+      includes.add("**/*." + include);
+    }
+    return new ResourceFilter(includes, null, true);
+  }
+
+  /**
+   * Checks if the file with the given relative path is included.
+   *
+   * @param path The path of the file relative to the root of the archive, separated with '/'.
+   * @return <code>true</code> if the path matches at least one include pattern and no exclude pattern.
+   */
+  public boolean matches(String path) {
+    if (includePatterns == null) {
+      includePatterns = compile(includes);
+      List<String> allExcludes = new ArrayList<>(excludes);
+      if (useDefaultExcludes) {
+        allExcludes.addAll(DEFAULT_EXCLUDES);
+      }
+      excludePatterns = compile(allExcludes);
+    }
+    boolean included = includePatterns.isEmpty() || includePatterns.stream().anyMatch(pattern -> pattern.matcher(path).matches());
+    return included && excludePatterns.stream().noneMatch(pattern -> pattern.matcher(path).matches());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("includes=%s, excludes=%s, useDefaultExcludes=%s", includes, excludes, useDefaultExcludes);
+  }
+
+  private static List<Pattern> compile(List<String> patterns) {
+    List<Pattern> compiled = new ArrayList<>();
+    for (String pattern : patterns) {
+      compiled.add(toRegex(pattern));
+    }
+    return compiled;
+  }
+
+  /**
+   * Converts an Ant-style pattern into a regular expression. '**' matches any number of directories, '*' any characters except '/' and '?' a single character except '/'. A pattern ending with '/'
+   * matches everything below the directory.
+   */
+  static Pattern toRegex(String pattern) {
+    String normalized = pattern.trim().replace('\\', '/');
+    if (normalized.endsWith("/")) {
+      normalized = normalized + "**";
+    }
+    while (normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    StringBuilder regex = new StringBuilder();
+    int i = 0;
+    while (i < normalized.length()) {
+      char c = normalized.charAt(i);
+      if (normalized.startsWith("**/", i)) {
+        regex.append("(?:.*/)?");
+        i += 3;
+      } else if (normalized.startsWith("**", i)) {
+        regex.append(".*");
+        i += 2;
+      } else if (c == '*') {
+        regex.append("[^/]*");
+        i++;
+      } else if (c == '?') {
+        regex.append("[^/]");
+        i++;
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+        i++;
+      }
+    }
+    return Pattern.compile(regex.toString());
+  }
+}
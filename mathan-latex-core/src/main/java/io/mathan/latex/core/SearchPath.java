@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The directories the input files of a build are searched in. By default all inputs are copied into the working directory. In overlay mode the working directory only contains the files written by
+ * the steps, the source directory and the resources of the dependencies are searched by the TeX tools themselves using the environment variables TEXINPUTS, BIBINPUTS, BSTINPUTS and INDEXSTYLE.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class SearchPath {
+
+  private static final List<String> VARIABLES = Arrays.asList("TEXINPUTS", "BIBINPUTS", "BSTINPUTS", "INDEXSTYLE");
+
+  private final List<File> directories;
+
+  private SearchPath(List<File> directories) {
+    this.directories = directories;
+  }
+
+  /**
+   * Creates the search path for a build copying all inputs into the working directory.
+   *
+   * @param workingDirectory The working directory.
+   * @return The search path.
+   */
+  static SearchPath of(File workingDirectory) {
+    return new SearchPath(Collections.singletonList(workingDirectory));
+  }
+
+  /**
+   * Creates the search path for a build in overlay mode. Files in the working directory take precedence over files in the source directory, which take precedence over the resources of the
+   * dependencies.
+   *
+   * @param workingDirectory The working directory.
+   * @param source The source directory.
+   * @param dependencies The directory containing the resources of the dependencies.
+   * @return The search path.
+   */
+  static SearchPath overlay(File workingDirectory, File source, File dependencies) {
+    return new SearchPath(Arrays.asList(workingDirectory, source, dependencies));
+  }
+
+  /**
+   * Returns the directories in the order of their precedence.
+   *
+   * @return The directories.
+   */
+  List<File> getDirectories() {
+    return directories;
+  }
+
+  /**
+   * Returns the file with the given path relative to the directories of the search path.
+   *
+   * @param path The relative path.
+   * @return The first existing file or the file in the working directory if the file does not exist at all.
+   */
+  File locate(String path) {
+    for (File directory : directories) {
+      File file = new File(directory, path);
+      if (file.exists()) {
+        return file;
+      }
+    }
+    return new File(directories.get(0), path);
+  }
+
+  /**
+   * Returns the environment variables for the processes of the steps. The path of the TeX distribution is appended to the search path, so existing values of the variables are preserved.
+   *
+   * @return The environment variables or an empty map if all inputs are copied into the working directory.
+   */
+  Map<String, String> getEnvironment() {
+    Map<String, String> environment = new HashMap<>();
+    if (directories.size() == 1) {
+      return environment;
+    }
+    List<String> paths = new ArrayList<>();
+    for (File directory : directories) {
+      paths.add(directory.getAbsolutePath());
+    }
+    String value = String.join(File.pathSeparator, paths) + File.pathSeparator;
+    for (String variable : VARIABLES) {
+      String existing = System.getenv(variable);
+      environment.put(variable, existing == null || existing.isEmpty() ? value : value + existing);
+    }
+    return environment;
+  }
+}
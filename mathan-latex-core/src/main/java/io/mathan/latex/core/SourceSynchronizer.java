@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Synchronizes the source directory into the working directory. A manifest in the working directory records path, size, modification time and checksum of every file copied from the source directory
+ * and the modification time of its copy, so only new or changed files are copied and files removed from the source directory are deleted. Files which were not copied from the source directory (e.g. intermediate files) are not touched.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class SourceSynchronizer {
+
+  static final String MANIFEST = "mathan-latex-sources.manifest";
+
+  private final BuildLog log;
+
+  SourceSynchronizer(BuildLog log) {
+    this.log = log;
+  }
+
+  /**
+   * Synchronizes the given source directory into the given working directory.
+   *
+   * @param source The source directory.
+   * @param workingDirectory The working directory.
+   * @throws IOException If a file could not be copied or the manifest could not be read or written.
+   */
+  void synchronize(File source, File workingDirectory) throws IOException {
+    File manifestFile = new File(workingDirectory, MANIFEST);
+    Map<String, Entry> previous = readManifest(manifestFile);
+    Map<String, Entry> current = new TreeMap<>();
+    int copied = 0;
+    int unchanged = 0;
+    for (String path : listFiles(source)) {
+      File src = new File(source, path);
+      File dest = new File(workingDirectory, path);
+      Entry old = previous.get(path);
+      boolean copy = old != null && isCopyOf(dest, old);
+      if (copy && old.size == src.length() && old.modified == src.lastModified()) {
+        current.put(path, old);
+        unchanged++;
+        continue;
+      }
+      String checksum = Utils.checksum(src);
+      if (copy && checksum.equals(old.checksum)) {
+        // only the modification time changed, e.g. by a checkout, so the copy is kept
+        current.put(path, new Entry(src.length(), src.lastModified(), checksum, old.copied));
+        unchanged++;
+        continue;
+      }
+      // never write into an existing file or change its modification time, it may be a link to a file in the dependency cache
+      Files.deleteIfExists(dest.toPath());
+      FileUtils.copyFile(src, dest);
+      current.put(path, new Entry(src.length(), src.lastModified(), checksum, dest.lastModified()));
+      copied++;
+    }
+    int deleted = 0;
+    for (String path : previous.keySet()) {
+      if (!current.containsKey(path) && Files.deleteIfExists(new File(workingDirectory, path).toPath())) {
+        deleted++;
+      }
+    }
+    writeManifest(manifestFile, current);
+    log.info(String.format("[mathan] synchronized sources: %s copied, %s deleted, %s unchanged", copied, deleted, unchanged));
+  }
+
+  private static boolean isCopyOf(File dest, Entry entry) {
+    return dest.exists() && dest.length() == entry.size && dest.lastModified() == entry.copied;
+  }
+
+  private static List<String> listFiles(File directory) throws IOException {
+    Path root = directory.toPath();
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths.filter(Files::isRegularFile).map(path -> root.relativize(path).toString().replace(File.separatorChar, '/')).sorted().collect(Collectors.toList());
+    }
+  }
+
+  private static Map<String, Entry> readManifest(File manifestFile) throws IOException {
+    Map<String, Entry> manifest = new TreeMap<>();
+    if (manifestFile.exists()) {
+      for (String line : FileUtils.readLines(manifestFile, StandardCharsets.UTF_8)) {
+        String[] values = line.split("\t");
+        if (values.length == 5) {
+          manifest.put(values[0], new Entry(Long.parseLong(values[1]), Long.parseLong(values[2]), values[3], Long.parseLong(values[4])));
+        }
+      }
+    }
+    return manifest;
+  }
+
+  private static void writeManifest(File manifestFile, Map<String, Entry> manifest) throws IOException {
+    List<String> lines = new ArrayList<>();
+    manifest.forEach((path, entry) -> lines.add(String.join("\t", path, String.valueOf(entry.size), String.valueOf(entry.modified), entry.checksum, String.valueOf(entry.copied))));
+    FileUtils.writeLines(manifestFile, StandardCharsets.UTF_8.name(), lines, "\n");
+  }
+
+  /**
+   * A single file recorded in the manifest.
+   */
+  private static class Entry {
+
+    private final long size;
+    private final long modified;
+    private final String checksum;
+    private final long copied;
+
+    Entry(long size, long modified, String checksum, long copied) {
+      this.size = size;
+      this.modified = modified;
+      this.checksum = checksum;
+      this.copied = copied;
+    }
+  }
+}
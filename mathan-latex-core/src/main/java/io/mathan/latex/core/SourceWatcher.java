@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches the source directory including all subdirectories for changes. A burst of changes (e.g. an editor writing a backup file before the file itself) is collected until no further change
+ * happened for the debounce time.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class SourceWatcher implements Closeable {
+
+  /**
+   * Returned as changed path if events were lost and the whole directory has to be considered as changed.
+   */
+  static final String ALL = "*";
+
+  private final Path root;
+  private final long debounce;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  SourceWatcher(File source, long debounce) throws IOException {
+    this.root = source.toPath();
+    this.debounce = debounce;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    register(root);
+  }
+
+  /**
+   * Blocks until at least one file in the source directory changed and no further change happened for the debounce time.
+   *
+   * @return The paths of the changed files relative to the source directory.
+   * @throws InterruptedException If the current thread was interrupted while waiting.
+   * @throws IOException If a new directory could not be watched.
+   */
+  Set<String> awaitChanges() throws InterruptedException, IOException {
+    Set<String> changes = new TreeSet<>();
+    WatchKey key = watchService.take();
+    while (key != null) {
+      Path directory = directories.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW || directory == null) {
+          changes.add(ALL);
+          continue;
+        }
+        Path path = directory.resolve((Path) event.context());
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+          register(path);
+        }
+        changes.add(root.relativize(path).toString().replace(File.separatorChar, '/'));
+      }
+      if (!key.reset()) {
+        directories.remove(key);
+      }
+      key = watchService.poll(debounce, TimeUnit.MILLISECONDS);
+    }
+    return changes;
+  }
+
+  private void register(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+        directories.put(path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), path);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -17,13 +17,18 @@
 package io.mathan.latex.core;
 
 import java.io.File;
+import java.io.Serializable;
 
 /**
  * This class represents a single step in an execution chain of commands during the process to generate an output document for a LaTeX source document.
  *
+ * <p>The predefined steps (e.g. {@link #STEP_PDFLATEX}) are shared templates which cannot be modified. A build works on {@link #copy() copies} of the steps.</p>
+ *
  * @author Matthias Hanisch (reallyinsane)
  */
-public class Step {
+public class Step implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   public static final Step STEP_LATEX = new Step("latex", "latex", Constants.FORMAT_TEX, Constants.FORMAT_DVI, "-interaction=nonstopmode --src-specials %input", false, "log");
   public static final Step STEP_PDFLATEX = new Step("pdflatex", "pdflatex", Constants.FORMAT_TEX, Constants.FORMAT_PDF, "-synctex=1 -interaction=nonstopmode --src-specials %input", false, "log");
@@ -69,9 +74,24 @@ public class Step {
    */
   private String logExtension;
 
+  /**
+   * The maximum time in seconds the step may run. If not set, the step timeout of the configuration is used.
+   */
+  private long timeout;
 
-  public Step() {
+  /**
+   * The maximum time in seconds the step may run without writing any output. If not set, the idle timeout of the configuration is used.
+   */
+  private long idleTimeout;
+
+  /**
+   * Flag indicating if this step is a predefined template which cannot be modified.
+   */
+  private final boolean template;
 
+
+  public Step() {
+    this.template = false;
   }
 
   private Step(String id, String name, String inputFormat, String outputFormat, String arguments, boolean optional, String logExtension) {
@@ -82,6 +102,42 @@ public class Step {
     this.arguments = arguments;
     this.optional = optional;
     this.logExtension = logExtension;
+    this.template = true;
+  }
+
+  /**
+   * Creates a modifiable copy of this step.
+   *
+   * @return The copy.
+   */
+  Step copy() {
+    return withArguments(arguments);
+  }
+
+  /**
+   * Creates a modifiable copy of this step with different arguments.
+   *
+   * @param arguments The arguments of the copy.
+   * @return The copy.
+   */
+  Step withArguments(String arguments) {
+    Step step = new Step();
+    step.id = id;
+    step.name = name;
+    step.inputFormat = inputFormat;
+    step.outputFormat = outputFormat;
+    step.arguments = arguments;
+    step.optional = optional;
+    step.logExtension = logExtension;
+    step.timeout = timeout;
+    step.idleTimeout = idleTimeout;
+    return step;
+  }
+
+  private void checkModifiable() {
+    if (template) {
+      throw new UnsupportedOperationException(String.format("The predefined step '%s' cannot be modified. Define a step with the same id instead.", id));
+    }
   }
 
   public static File getInputFile(Step step, File texFile) {
@@ -124,6 +180,7 @@ public class Step {
   }
 
   public void setId(String id) {
+    checkModifiable();
     this.id = id;
   }
 
@@ -132,26 +189,30 @@ public class Step {
   }
 
   public void setName(String name) {
+    checkModifiable();
     this.name = name;
   }
 
   public void setArguments(String arguments) {
+    checkModifiable();
     this.arguments = arguments;
   }
 
-  private String getInputFormat() {
+  String getInputFormat() {
     return inputFormat;
   }
 
   public void setInputFormat(String inputFormat) {
+    checkModifiable();
     this.inputFormat = inputFormat;
   }
 
-  private String getOutputFormat() {
+  String getOutputFormat() {
     return outputFormat;
   }
 
   public void setOutputFormat(String outputFormat) {
+    checkModifiable();
     this.outputFormat = outputFormat;
   }
 
@@ -160,6 +221,7 @@ public class Step {
   }
 
   public void setOptional(boolean optional) {
+    checkModifiable();
     this.optional = optional;
   }
 
@@ -167,6 +229,33 @@ public class Step {
     return this.logExtension;
   }
 
+  public long getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(long timeout) {
+    checkModifiable();
+    this.timeout = timeout;
+  }
+
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public void setIdleTimeout(long idleTimeout) {
+    checkModifiable();
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Returns whether this step is a LaTeX pass processing the LaTeX source document. (e.g. pdflatex)
+   *
+   * @return <code>true</code> if the input format of this step is tex.
+   */
+  public boolean isLatexPass() {
+    return Constants.FORMAT_TEX.equals(inputFormat);
+  }
+
   /**
    * Returns the name of the executable depending on the current operating system.
    *
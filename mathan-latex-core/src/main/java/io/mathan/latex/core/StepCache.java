@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache for the results of bibtex, biber, makeindex and makeindexnomencl. The result of a step is stored together with a checksum of the inputs actually read by the step. If a step is executed again
+ * with the same inputs, the result is restored from the cache instead of starting the process.
+ *
+ * <ul> <li>bibtex: the \citation, \bibdata and \bibstyle entries of all .aux files and the .bib/.bst files referenced</li> <li>biber: the .bcf file and all .bib files</li> <li>makeindex: the .idx
+ * file and the style file</li> <li>makeindexnomencl: the .nlo file and the style file</li> </ul>
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class StepCache {
+
+  private static final String CHECKSUM_FILE = "inputs.sha256";
+  private static final Pattern BIBTEX_ENTRY = Pattern.compile("^\\\\(citation|bibdata|bibstyle)\\{(.*)\\}\\s*$");
+
+  private final File cacheDirectory;
+  private final SearchPath searchPath;
+
+  StepCache(File cacheDirectory, SearchPath searchPath) {
+    this.cacheDirectory = cacheDirectory;
+    this.searchPath = searchPath;
+  }
+
+  /**
+   * Calculates the checksum of the inputs of the given step.
+   *
+   * @param step The step to execute.
+   * @param texFile The LaTeX source document in the working directory.
+   * @param executable The executable of the step.
+   * @return The checksum of the inputs or <code>null</code> if the result of the step cannot be cached.
+   * @throws LatexExecutionException If an input could not be read.
+   */
+  String getInputChecksum(Step step, File texFile, File executable) throws LatexExecutionException {
+    if (getOutputFormat(step) == null) {
+      return null;
+    }
+    File workingDirectory = texFile.getParentFile();
+    String pureName = texFile.getName().substring(0, texFile.getName().lastIndexOf('.'));
+    BuildFingerprint fingerprint = new BuildFingerprint();
+    fingerprint.add("arguments", Step.getArguments(step, texFile));
+    fingerprint.addExecutable("executable", executable);
+    if (Step.STEP_BIBTEX.getId().equals(step.getId())) {
+      addBibtexInputs(fingerprint, workingDirectory);
+    } else if (Step.STEP_BIBER.getId().equals(step.getId())) {
+      addOptionalFile(fingerprint, new File(workingDirectory, pureName + "." + Constants.FORMAT_BCF));
+      for (File directory : searchPath.getDirectories()) {
+        if (directory.exists()) {
+          for (File bib : sorted(FileUtils.listFiles(directory, new String[]{Constants.FORMAT_BIB}, true))) {
+            fingerprint.addFile(bib.getAbsolutePath(), bib);
+          }
+        }
+      }
+    } else {
+      addOptionalFile(fingerprint, Step.getInputFile(step, texFile));
+      String styleFile = getStyleFile(Step.getArguments(step, texFile));
+      if (styleFile != null) {
+        addOptionalFile(fingerprint, searchPath.locate(styleFile));
+      }
+    }
+    return fingerprint.getValue();
+  }
+
+  /**
+   * Restores the result of the given step from the cache if the inputs did not change.
+   *
+   * @param step The step to execute.
+   * @param texFile The LaTeX source document in the working directory.
+   * @param checksum The checksum of the current inputs of the step.
+   * @return <code>true</code> if the result was restored.
+   */
+  boolean restore(Step step, File texFile, String checksum) {
+    File stepDirectory = new File(cacheDirectory, step.getId());
+    File cachedOutput = new File(stepDirectory, getOutputName(step, texFile));
+    File checksumFile = new File(stepDirectory, CHECKSUM_FILE);
+    try {
+      if (!cachedOutput.exists() || !checksumFile.exists() || !checksum.equals(FileUtils.readFileToString(checksumFile, StandardCharsets.UTF_8).trim())) {
+        return false;
+      }
+      File output = new File(texFile.getParentFile(), getOutputName(step, texFile));
+      Files.deleteIfExists(output.toPath());
+      FileUtils.copyFile(cachedOutput, output);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Stores the result of the given step in the cache.
+   *
+   * @param step The executed step.
+   * @param texFile The LaTeX source document in the working directory.
+   * @param checksum The checksum of the inputs of the step.
+   * @throws IOException If the result could not be stored.
+   */
+  void store(Step step, File texFile, String checksum) throws IOException {
+    File output = new File(texFile.getParentFile(), getOutputName(step, texFile));
+    if (!output.exists()) {
+      return;
+    }
+    File stepDirectory = new File(cacheDirectory, step.getId());
+    FileUtils.copyFile(output, new File(stepDirectory, output.getName()));
+    FileUtils.writeStringToFile(new File(stepDirectory, CHECKSUM_FILE), checksum, StandardCharsets.UTF_8);
+  }
+
+  private static String getOutputName(Step step, File texFile) {
+    String pureName = texFile.getName().substring(0, texFile.getName().lastIndexOf('.'));
+    return pureName + "." + getOutputFormat(step);
+  }
+
+  /**
+   * Returns the format of the file written by the given step or <code>null</code> if the step is not supported by the cache.
+   */
+  private static String getOutputFormat(Step step) {
+    if (Step.STEP_BIBTEX.getId().equals(step.getId()) || Step.STEP_BIBER.getId().equals(step.getId())) {
+      return Constants.FORMAT_BBL;
+    } else if (Step.STEP_MAKEINDEX.getId().equals(step.getId())) {
+      return "ind";
+    } else if (Step.STEP_MAKEINDEXNOMENCL.getId().equals(step.getId())) {
+      return Constants.FORMAT_NLS;
+    }
+    return null;
+  }
+
+  private void addBibtexInputs(BuildFingerprint fingerprint, File workingDirectory) throws LatexExecutionException {
+    List<String> databases = new ArrayList<>();
+    List<String> styles = new ArrayList<>();
+    for (File aux : sorted(FileUtils.listFiles(workingDirectory, new String[]{Constants.FORMAT_AUX}, true))) {
+      List<String> lines;
+      try {
+        lines = FileUtils.readLines(aux, StandardCharsets.ISO_8859_1);
+      } catch (IOException e) {
+        throw new LatexExecutionException(String.format("Could not read %s", aux.getAbsolutePath()), e);
+      }
+      for (String line : lines) {
+        Matcher matcher = BIBTEX_ENTRY.matcher(line);
+        if (matcher.matches()) {
+          fingerprint.add(aux.getName(), line);
+          if ("bibdata".equals(matcher.group(1))) {
+            Collections.addAll(databases, matcher.group(2).split(","));
+          } else if ("bibstyle".equals(matcher.group(1))) {
+            styles.add(matcher.group(2));
+          }
+        }
+      }
+    }
+    for (String database : databases) {
+      addOptionalFile(fingerprint, searchPath.locate(withExtension(database.trim(), Constants.FORMAT_BIB)));
+    }
+    for (String style : styles) {
+      addOptionalFile(fingerprint, searchPath.locate(withExtension(style.trim(), Constants.FORMAT_BST)));
+    }
+  }
+
+  /**
+   * Adds the given file to the fingerprint. Files which are not found on the search path (e.g. files of the TeX distribution) are only added by name.
+   */
+  private static void addOptionalFile(BuildFingerprint fingerprint, File file) throws LatexExecutionException {
+    if (file.exists()) {
+      fingerprint.addFile(file.getName(), file);
+    } else {
+      fingerprint.add(file.getName(), "missing");
+    }
+  }
+
+  private static String getStyleFile(String arguments) {
+    List<String> tokens = new ArrayList<>();
+    Utils.tokenizeEscapedString(arguments, tokens);
+    int index = tokens.indexOf("-s");
+    return index >= 0 && index < tokens.size() - 1 ? tokens.get(index + 1) : null;
+  }
+
+  private static String withExtension(String name, String extension) {
+    return name.endsWith("." + extension) ? name : name + "." + extension;
+  }
+
+  private static List<File> sorted(Collection<File> files) {
+    List<File> list = new ArrayList<>(files);
+    Collections.sort(list);
+    return list;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Decides if an optional step is needed for a document by inspecting the files written by the previous LaTeX pass. This way no process is started for a tool the document does not use.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class StepPlanner {
+
+  private static final Pattern AUX_INPUT = Pattern.compile("\\\\@input\\{([^}]+)\\}");
+
+  private StepPlanner() {
+  }
+
+  /**
+   * Checks if the given step is needed for the given document. Only optional predefined steps are checked, all other steps are always needed.
+   *
+   * @param step The step to check.
+   * @param texFile The LaTeX source document in the working directory.
+   * @return The reason why the step is not needed or <code>null</code> if the step is needed.
+   * @throws LatexExecutionException If a file written by the previous LaTeX pass could not be read.
+   */
+  static String getSkipReason(Step step, File texFile) throws LatexExecutionException {
+    if (!step.isOptional()) {
+      return null;
+    }
+    File workingDirectory = texFile.getParentFile();
+    String pureName = texFile.getName().substring(0, texFile.getName().lastIndexOf('.'));
+    if (Step.STEP_BIBTEX.getId().equals(step.getId())) {
+      return containsBibdata(new File(workingDirectory, pureName + "." + Constants.FORMAT_AUX)) ? null : String.format("no \\bibdata found in %s.%s", pureName, Constants.FORMAT_AUX);
+    } else if (Step.STEP_BIBER.getId().equals(step.getId())) {
+      return isEmpty(new File(workingDirectory, pureName + "." + Constants.FORMAT_BCF)) ? String.format("%s.%s is missing or empty", pureName, Constants.FORMAT_BCF) : null;
+    } else if (Step.STEP_MAKEINDEX.getId().equals(step.getId())) {
+      return isEmpty(new File(workingDirectory, pureName + "." + Constants.FORMAT_IDX)) ? String.format("%s.%s is missing or empty", pureName, Constants.FORMAT_IDX) : null;
+    } else if (Step.STEP_MAKEINDEXNOMENCL.getId().equals(step.getId())) {
+      return isEmpty(new File(workingDirectory, pureName + "." + Constants.FORMAT_NLO)) ? String.format("%s.%s is missing or empty", pureName, Constants.FORMAT_NLO) : null;
+    }
+    return null;
+  }
+
+  private static boolean isEmpty(File file) {
+    return !file.exists() || file.length() == 0;
+  }
+
+  /**
+   * Checks if the bibliography database is set in the .aux file of the document or in one of the .aux files it reads with \@input. Documents using \include write the bibliography to the .aux file
+   * of the included document. Other .aux files in the working directory (e.g. left behind by an earlier build) are not considered.
+   */
+  private static boolean containsBibdata(File mainAux) throws LatexExecutionException {
+    Set<File> visited = new HashSet<>();
+    Deque<File> pending = new ArrayDeque<>();
+    pending.add(mainAux);
+    while (!pending.isEmpty()) {
+      File aux = pending.poll();
+      if (!visited.add(aux) || !aux.isFile()) {
+        continue;
+      }
+      String content;
+      try {
+        content = FileUtils.readFileToString(aux, StandardCharsets.ISO_8859_1);
+      } catch (IOException e) {
+        throw new LatexExecutionException(String.format("Could not read %s", aux.getAbsolutePath()), e);
+      }
+      if (content.contains("\\bibdata{")) {
+        return true;
+      }
+      Matcher matcher = AUX_INPUT.matcher(content);
+      while (matcher.find()) {
+        pending.add(new File(mainAux.getParentFile(), matcher.group(1).trim()));
+      }
+    }
+    return false;
+  }
+}
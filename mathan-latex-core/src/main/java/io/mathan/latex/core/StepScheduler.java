@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executes a list of steps concurrently while keeping the declared order of steps with a data dependency. A step depends on an earlier step if one of them is a LaTeX pass, if one of them reads
+ * the format the other one writes, if both write the same format or if both write the same log file.
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+class StepScheduler {
+
+  private final List<Step> steps;
+  private final List<List<Integer>> dependencies = new ArrayList<>();
+
+  StepScheduler(List<Step> steps) {
+    this.steps = steps;
+    for (int j = 0; j < steps.size(); j++) {
+      List<Integer> predecessors = new ArrayList<>();
+      for (int i = 0; i < j; i++) {
+        if (dependsOn(steps.get(j), steps.get(i))) {
+          predecessors.add(i);
+        }
+      }
+      dependencies.add(predecessors);
+    }
+  }
+
+  /**
+   * Checks if the given step has to be executed after the other step when both steps are declared in this order.
+   *
+   * @param step The step declared later.
+   * @param other The step declared earlier.
+   * @return <code>true</code> if there is a data dependency between both steps.
+   */
+  static boolean dependsOn(Step step, Step other) {
+    return step.isLatexPass() || other.isLatexPass()
+        || Objects.equals(step.getId(), other.getId())
+        || Objects.equals(step.getInputFormat(), other.getOutputFormat())
+        || Objects.equals(step.getOutputFormat(), other.getInputFormat())
+        || Objects.equals(step.getOutputFormat(), other.getOutputFormat())
+        || (step.getLogExtension() != null && step.getLogExtension().equals(other.getLogExtension()));
+  }
+
+  /**
+   * Executes all steps on an executor with the given number of threads. A step is started as soon as all steps it depends on are finished.
+   *
+   * @param task The task executing a single step.
+   * @param threads The maximum number of steps executed at the same time.
+   * @param <T> The type of the result of a single step.
+   * @return The results of all steps in the declared order.
+   * @throws LatexExecutionException If the execution of at least one step failed.
+   */
+  <T> List<T> execute(StepTask<T> task, int threads) throws LatexExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<CompletableFuture<T>> futures = new ArrayList<>();
+      for (int j = 0; j < steps.size(); j++) {
+        Step step = steps.get(j);
+        CompletableFuture<?>[] predecessors = dependencies.get(j).stream().map(futures::get).toArray(CompletableFuture[]::new);
+        futures.add(CompletableFuture.allOf(predecessors).thenApplyAsync(ignored -> {
+          try {
+            return task.execute(step);
+          } catch (LatexExecutionException e) {
+            throw new CompletionException(e);
+          }
+        }, executor));
+      }
+      List<T> results = new ArrayList<>();
+      for (CompletableFuture<T> future : futures) {
+        results.add(future.join());
+      }
+      return results;
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof LatexExecutionException) {
+        throw (LatexExecutionException) e.getCause();
+      }
+      throw new LatexExecutionException("Execution of steps failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Task executing a single step.
+   *
+   * @param <T> The type of the result.
+   */
+  interface StepTask<T> {
+
+    T execute(Step step) throws LatexExecutionException;
+  }
+}
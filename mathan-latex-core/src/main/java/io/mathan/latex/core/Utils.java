@@ -17,16 +17,26 @@
 package io.mathan.latex.core;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 /**
@@ -36,6 +46,21 @@ import org.apache.commons.io.IOUtils;
  */
 public class Utils {
 
+  /**
+   * The size of the buffer for extracting archives. Resources like figures are often large, so a large buffer reduces the number of I/O operations.
+   */
+  private static final int EXTRACT_BUFFER_SIZE = 1024 * 1024;
+
+  /**
+   * The executables already found by texBin, the system property texBin, PATH and the name of the executable. The cache is shared by all builds in the same JVM (e.g. a Gradle daemon).
+   */
+  private static final Map<String, File> EXECUTABLES = new ConcurrentHashMap<>();
+
+  /**
+   * The checksums of the executables by their location, size and modification time.
+   */
+  private static final Map<String, String> EXECUTABLE_CHECKSUMS = new ConcurrentHashMap<>();
+
   private Utils() {
   }
 
@@ -91,13 +116,29 @@ public class Utils {
   }
 
   /**
-   * Returns the File for the executable or <code>null</code> if the executable could not be found.
+   * Returns the File for the executable or <code>null</code> if the executable could not be found. Found executables are cached as long as texBin, the system property texBin and PATH do not change
+   * and the executable still exists.
    *
    * @param texBin The bin directory of the LATEX distribution.
    * @param name The name of the executable to find.
    * @return The executable file or <code>null</code>.
    */
   public static File getExecutable(String texBin, String name) {
+    String key = String.join(File.pathSeparator + File.pathSeparator, String.valueOf(texBin), String.valueOf(System.getProperty("texBin")), String.valueOf(System.getenv("PATH")), name);
+    File executable = EXECUTABLES.get(key);
+    if (executable != null && executable.exists()) {
+      return executable;
+    }
+    executable = findExecutable(texBin, name);
+    if (executable == null) {
+      EXECUTABLES.remove(key);
+    } else {
+      EXECUTABLES.put(key, executable);
+    }
+    return executable;
+  }
+
+  private static File findExecutable(String texBin, String name) {
     File executable;
     // try to find executable in configured bin directory of the tex distribution
     if (texBin != null && !texBin.isEmpty()) {
@@ -117,6 +158,9 @@ public class Utils {
 
     // try to find the executable on the path
     String envPath = System.getenv("PATH");
+    if (envPath == null) {
+      return null;
+    }
     String[] paths = envPath.split(File.pathSeparator);
     for (String path : paths) {
       executable = new File(path, name);
@@ -128,40 +172,144 @@ public class Utils {
   }
 
   /**
-   * Extracts the content of the given ZIP archive to a temporary directory and returns it.
+   * Extracts the entries of the given ZIP archive matching the given filter directly into the given directory. The entries are streamed from the archive to their final location, entries not
+   * matching the filter are not extracted at all. An existing file is replaced and not written into, as it may be a link to a shared file.
    *
    * @param archive The ZIP archive.
-   * @return The created temporary directory containing the ZIP archive content.
-   * @throws IOException If the temporary directory could not be created or an error occurred during extraction of the ZIP.
+   * @param directory The directory to extract the entries to.
+   * @param filter The filter for the entries to extract.
+   * @return The paths of the extracted files relative to the directory.
+   * @throws IOException If an error occurred during extraction of the ZIP or an entry would be extracted outside the directory.
    */
-  public static File extractArchive(File archive) throws IOException {
-    File temporaryDirectory = new File(FileUtils.getTempDirectory(), UUID.randomUUID().toString());
-    if (!temporaryDirectory.mkdir()) {
-      throw new IOException("Could not create temporary directory " + temporaryDirectory.getAbsolutePath());
-    }
+  public static List<String> extractArchive(File archive, File directory, ResourceFilter filter) throws IOException {
+    return extractArchive(archive, directory, filter, Collections.emptySet());
+  }
+
+  /**
+   * Extracts the entries of the given ZIP archive matching the given filter directly into the given directory except the given paths.
+   *
+   * @param archive The ZIP archive.
+   * @param directory The directory to extract the entries to.
+   * @param filter The filter for the entries to extract.
+   * @param skipped The paths not to extract. (e.g. because they are provided by another archive)
+   * @return The paths of the extracted files relative to the directory.
+   * @throws IOException If an error occurred during extraction of the ZIP or an entry would be extracted outside the directory.
+   */
+  public static List<String> extractArchive(File archive, File directory, ResourceFilter filter, Set<String> skipped) throws IOException {
+    List<String> extracted = new ArrayList<>();
+    Path root = directory.getCanonicalFile().toPath();
+    byte[] buffer = new byte[EXTRACT_BUFFER_SIZE];
     try (ZipFile zip = new ZipFile(archive)) {
       Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName().replace('\\', '/');
+        if (entry.isDirectory() || !filter.matches(name) || skipped.contains(name)) {
+          continue;
+        }
+        Path file = root.resolve(name).normalize();
+        if (!file.startsWith(root)) {
+          throw new IOException(String.format("Entry %s of %s is outside of the target directory", entry.getName(), archive.getName()));
+        }
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+        try (InputStream in = zip.getInputStream(entry); OutputStream out = Files.newOutputStream(file)) {
+          IOUtils.copyLarge(in, out, buffer);
+        }
+        if (entry.getTime() != -1) {
+          Files.setLastModifiedTime(file, FileTime.fromMillis(entry.getTime()));
+        }
+        extracted.add(name);
+      }
+    }
+    return extracted;
+  }
 
+  /**
+   * Lists the entries of the given ZIP archive matching the given filter without extracting them.
+   *
+   * @param archive The ZIP archive.
+   * @param filter The filter for the entries.
+   * @return The paths of the matching files in the archive.
+   * @throws IOException If the ZIP could not be read.
+   */
+  public static List<String> listArchive(File archive, ResourceFilter filter) throws IOException {
+    List<String> paths = new ArrayList<>();
+    try (ZipFile zip = new ZipFile(archive)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
       while (entries.hasMoreElements()) {
         ZipEntry entry = entries.nextElement();
-        if (entry.isDirectory()) {
-          File directory = new File(temporaryDirectory, entry.getName());
-          if (!directory.mkdirs()) {
-            throw new IOException("Could not create directory " + directory.getAbsolutePath());
-          }
-        } else {
-          InputStream in = zip.getInputStream(entry);
-          File file = new File(temporaryDirectory, entry.getName());
-          if (file.getParentFile() != null && !file.getParentFile().exists()) {
-            file.getParentFile().mkdirs();
-          }
-          FileOutputStream out = new FileOutputStream(file);
-          IOUtils.copy(in, out);
-          in.close();
-          out.close();
+        String name = entry.getName().replace('\\', '/');
+        if (!entry.isDirectory() && filter.matches(name)) {
+          paths.add(name);
         }
       }
     }
-    return temporaryDirectory;
+    return paths;
+  }
+
+  /**
+   * Calculates the SHA-256 checksum of the content of the given file.
+   *
+   * @param file The file.
+   * @return The checksum as hex string.
+   * @throws IOException If the file could not be read.
+   */
+  public static String checksum(File file) throws IOException {
+    MessageDigest digest = createDigest();
+    byte[] buffer = new byte[65536];
+    try (InputStream in = new FileInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Returns the identity of the given executable consisting of its location, its size and the checksum of its content. The checksum is cached as long as the size and the modification time of the
+   * executable do not change.
+   *
+   * @param executable The executable.
+   * @return The identity of the executable.
+   * @throws IOException If the executable could not be read.
+   */
+  public static String getIdentity(File executable) throws IOException {
+    String key = String.format("%s:%s:%s", executable.getAbsolutePath(), executable.length(), executable.lastModified());
+    String checksum = EXECUTABLE_CHECKSUMS.get(key);
+    if (checksum == null) {
+      checksum = checksum(executable);
+      EXECUTABLE_CHECKSUMS.put(key, checksum);
+    }
+    return String.format("%s:%s:%s", executable.getAbsolutePath(), executable.length(), checksum);
+  }
+
+  /**
+   * Calculates the SHA-256 checksum of the given text.
+   *
+   * @param text The text.
+   * @return The checksum as hex string.
+   */
+  public static String checksum(String text) {
+    MessageDigest digest = createDigest();
+    return toHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
   }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncludeOnlyTest {
+
+  private static final String MAIN = "\\documentclass{book}\n"
+      + "\\begin{document}\n"
+      + "\\include{chapter1}\n"
+      + "\\include{chapter2.tex}\n"
+      + "% \\include{chapter3}\n"
+      + "\\end{document}\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File source;
+  private File working;
+  private File main;
+
+  @Before
+  public void setUp() throws IOException {
+    source = folder.newFolder("source");
+    working = folder.newFolder("working");
+    main = new File(source, "main.tex");
+    write(main, MAIN);
+    write(new File(source, "chapter1.tex"), "\\chapter{One}\n");
+    write(new File(source, "chapter2.tex"), "\\chapter{Two}\n");
+    write(new File(working, "chapter1.aux"), "");
+    write(new File(working, "chapter2.aux"), "");
+  }
+
+  @Test
+  public void noPreviousBuild() throws IOException {
+    assertTrue(IncludeOnly.scan(main).getChanged(null, working).isEmpty());
+  }
+
+  @Test
+  public void unchanged() throws IOException {
+    IncludeOnly previous = IncludeOnly.scan(main);
+    assertTrue(IncludeOnly.scan(main).getChanged(previous, working).isEmpty());
+  }
+
+  @Test
+  public void includeChanged() throws IOException {
+    IncludeOnly previous = IncludeOnly.scan(main);
+    write(new File(source, "chapter2.tex"), "\\chapter{Two changed}\n");
+    assertEquals(Collections.singletonList("chapter2.tex"), IncludeOnly.scan(main).getChanged(previous, working));
+  }
+
+  @Test
+  public void commentedIncludeIgnored() throws IOException {
+    IncludeOnly previous = IncludeOnly.scan(main);
+    write(new File(source, "chapter1.tex"), "\\chapter{One changed}\n");
+    write(new File(source, "chapter3.tex"), "\\chapter{Three}\n");
+    assertEquals(Collections.singletonList("chapter1"), IncludeOnly.scan(main).getChanged(previous, working));
+  }
+
+  @Test
+  public void mainFileChanged() throws IOException {
+    IncludeOnly previous = IncludeOnly.scan(main);
+    write(new File(source, "chapter1.tex"), "\\chapter{One changed}\n");
+    write(main, MAIN.replace("\\begin{document}", "\\usepackage{makeidx}\n\\begin{document}"));
+    assertTrue(IncludeOnly.scan(main).getChanged(previous, working).isEmpty());
+  }
+
+  @Test
+  public void allIncludesChanged() throws IOException {
+    IncludeOnly previous = IncludeOnly.scan(main);
+    write(new File(source, "chapter1.tex"), "\\chapter{One changed}\n");
+    write(new File(source, "chapter2.tex"), "\\chapter{Two changed}\n");
+    assertTrue(IncludeOnly.scan(main).getChanged(previous, working).isEmpty());
+  }
+
+  @Test
+  public void auxFileMissing() throws IOException {
+    IncludeOnly previous = IncludeOnly.scan(main);
+    write(new File(source, "chapter2.tex"), "\\chapter{Two changed}\n");
+    FileUtils.forceDelete(new File(working, "chapter1.aux"));
+    assertTrue(IncludeOnly.scan(main).getChanged(previous, working).isEmpty());
+  }
+
+  @Test
+  public void storeAndRead() throws IOException {
+    File file = new File(working, "includes");
+    assertNull(IncludeOnly.read(file));
+    IncludeOnly.scan(main).store(file);
+    IncludeOnly previous = IncludeOnly.read(file);
+    write(new File(source, "chapter1.tex"), "\\chapter{One changed}\n");
+    assertEquals(Collections.singletonList("chapter1"), IncludeOnly.scan(main).getChanged(previous, working));
+  }
+
+  @Test
+  public void writeAndRestore() throws IOException {
+    File copy = new File(working, "main.tex");
+    assertTrue(IncludeOnly.write(main, copy, Arrays.asList("chapter1", "chapter2.tex")));
+    String content = FileUtils.readFileToString(copy, StandardCharsets.UTF_8);
+    assertEquals(MAIN.replace("\\begin{document}", "\\includeonly{chapter1,chapter2.tex}\n\\begin{document}"), content);
+    // the source document is not modified, so the copy is restored from it
+    assertEquals(MAIN, FileUtils.readFileToString(main, StandardCharsets.UTF_8));
+    FileUtils.copyFile(main, copy);
+    assertFalse(FileUtils.readFileToString(copy, StandardCharsets.UTF_8).contains("\\includeonly"));
+  }
+
+  @Test
+  public void writeWithoutDocument() throws IOException {
+    File fragment = new File(source, "fragment.tex");
+    write(fragment, "\\include{chapter1}\n");
+    File copy = new File(working, "fragment.tex");
+    assertFalse(IncludeOnly.write(fragment, copy, Collections.singletonList("chapter1")));
+    assertFalse(copy.exists());
+  }
+
+  private static void write(File file, String content) throws IOException {
+    FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+  }
+}
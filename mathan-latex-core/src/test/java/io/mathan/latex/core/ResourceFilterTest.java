@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class ResourceFilterTest {
+
+  @Test
+  public void anyDirectory() {
+    Pattern pattern = ResourceFilter.toRegex("**/*.tex");
+    assertTrue(pattern.matcher("main.tex").matches());
+    assertTrue(pattern.matcher("chapters/intro.tex").matches());
+    assertTrue(pattern.matcher("a/b/c.tex").matches());
+    assertFalse(pattern.matcher("main.sty").matches());
+    assertFalse(pattern.matcher("main.texx").matches());
+  }
+
+  @Test
+  public void singleDirectory() {
+    Pattern pattern = ResourceFilter.toRegex("*.sty");
+    assertTrue(pattern.matcher("style.sty").matches());
+    assertFalse(pattern.matcher("styles/style.sty").matches());
+  }
+
+  @Test
+  public void singleCharacter() {
+    Pattern pattern = ResourceFilter.toRegex("logo?.eps");
+    assertTrue(pattern.matcher("logo1.eps").matches());
+    assertFalse(pattern.matcher("logo.eps").matches());
+    assertFalse(pattern.matcher("logo12.eps").matches());
+    assertFalse(ResourceFilter.toRegex("a?b").matcher("a/b").matches());
+  }
+
+  @Test
+  public void literalCharacters() {
+    Pattern pattern = ResourceFilter.toRegex("*.tex");
+    assertFalse(pattern.matcher("maintex").matches());
+    assertTrue(ResourceFilter.toRegex("file(1)+.bib").matcher("file(1)+.bib").matches());
+  }
+
+  @Test
+  public void directory() {
+    Pattern pattern = ResourceFilter.toRegex("images/");
+    assertTrue(pattern.matcher("images/logo.eps").matches());
+    assertTrue(pattern.matcher("images/logos/logo.eps").matches());
+    assertFalse(pattern.matcher("figures/logo.eps").matches());
+  }
+
+  @Test
+  public void normalized() {
+    assertTrue(ResourceFilter.toRegex("/bib/references.bib").matcher("bib/references.bib").matches());
+    assertTrue(ResourceFilter.toRegex("bib\\*.bib").matcher("bib/references.bib").matches());
+    assertTrue(ResourceFilter.toRegex(" *.bib ").matcher("references.bib").matches());
+  }
+
+  @Test
+  public void defaultExcludes() {
+    ResourceFilter filter = ResourceFilter.createDefault();
+    assertTrue(filter.matches("sty/style.sty"));
+    assertFalse(filter.matches(".git/style.sty"));
+    assertFalse(filter.matches("sty/.svn/style.sty"));
+    assertFalse(filter.matches("META-INF/MANIFEST.MF"));
+  }
+
+  @Test
+  public void excludes() {
+    ResourceFilter filter = new ResourceFilter(null, Collections.singletonList("**/draft/**"), false);
+    assertTrue(filter.matches("META-INF/MANIFEST.MF"));
+    assertTrue(filter.matches(".git/style.sty"));
+    assertFalse(filter.matches("chapters/draft/intro.tex"));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.latex.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class StepSchedulerTest {
+
+  @Test
+  public void latexPassDependsOnAllSteps() {
+    assertTrue(StepScheduler.dependsOn(Step.STEP_PDFLATEX, Step.STEP_BIBTEX));
+    assertTrue(StepScheduler.dependsOn(Step.STEP_MAKEINDEX, Step.STEP_PDFLATEX));
+    assertTrue(StepScheduler.dependsOn(Step.STEP_PDFLATEX, Step.STEP_PDFLATEX));
+  }
+
+  @Test
+  public void independentSteps() {
+    assertFalse(StepScheduler.dependsOn(Step.STEP_MAKEINDEX, Step.STEP_BIBTEX));
+    assertFalse(StepScheduler.dependsOn(Step.STEP_BIBER, Step.STEP_MAKEINDEXNOMENCL));
+  }
+
+  @Test
+  public void sameStep() {
+    assertTrue(StepScheduler.dependsOn(Step.STEP_BIBTEX, Step.STEP_BIBTEX));
+  }
+
+  @Test
+  public void formatDependency() {
+    // ps2pdf reads the ps written by dvips
+    assertTrue(StepScheduler.dependsOn(Step.STEP_PS2PDF, Step.STEP_DVIPS));
+    assertTrue(StepScheduler.dependsOn(Step.STEP_DVIPS, Step.STEP_PS2PDF));
+  }
+
+  @Test
+  public void sameOutputFormat() {
+    assertTrue(StepScheduler.dependsOn(Step.STEP_DVIPDFM, Step.STEP_PS2PDF));
+  }
+
+  @Test
+  public void sameLogFile() {
+    // makeindex and makeindexnomencl both write the .ilg file
+    assertTrue(StepScheduler.dependsOn(Step.STEP_MAKEINDEXNOMENCL, Step.STEP_MAKEINDEX));
+  }
+
+  @Test
+  public void independentStepsConcurrent() throws Exception {
+    List<Step> steps = Arrays.asList(Step.STEP_PDFLATEX, Step.STEP_BIBTEX, Step.STEP_MAKEINDEX, Step.STEP_PDFLATEX);
+    CountDownLatch started = new CountDownLatch(2);
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    List<String> results = new StepScheduler(steps).execute(step -> {
+      if (!step.isLatexPass()) {
+        started.countDown();
+        // bibtex and makeindex only finish if both are running at the same time
+        if (!await(started)) {
+          throw new LatexExecutionException(String.format("Step %s was not executed concurrently", step.getId()));
+        }
+      }
+      executed.add(step.getId());
+      return step.getId();
+    }, 2);
+    assertEquals(Arrays.asList("pdflatex", "bibtex", "makeindex", "pdflatex"), results);
+    assertEquals("pdflatex", executed.get(0));
+    assertEquals("pdflatex", executed.get(3));
+  }
+
+  @Test
+  public void dependentStepsInOrder() throws Exception {
+    List<Step> steps = Arrays.asList(Step.STEP_MAKEINDEX, Step.STEP_MAKEINDEXNOMENCL, Step.STEP_BIBTEX, Step.STEP_BIBTEX);
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    new StepScheduler(steps).execute(step -> {
+      executed.add(step.getId() + ":start");
+      // give a step started too early the chance to overtake
+      sleep();
+      executed.add(step.getId() + ":end");
+      return null;
+    }, 4);
+    assertTrue(executed.indexOf("makeindex:end") < executed.indexOf("makeindexnomencl:start"));
+    assertTrue(executed.indexOf("bibtex:end") < executed.lastIndexOf("bibtex:start"));
+  }
+
+  @Test
+  public void failure() {
+    List<Step> steps = Arrays.asList(Step.STEP_PDFLATEX, Step.STEP_BIBTEX, Step.STEP_PDFLATEX);
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    try {
+      new StepScheduler(steps).execute(step -> {
+        executed.add(step.getId());
+        if (step.getId().equals("bibtex")) {
+          throw new LatexExecutionException("bibtex failed");
+        }
+        return null;
+      }, 2);
+      fail("LatexExecutionException expected");
+    } catch (LatexExecutionException e) {
+      assertEquals("bibtex failed", e.getMessage());
+    }
+    assertEquals(Arrays.asList("pdflatex", "bibtex"), executed);
+  }
+
+  private static boolean await(CountDownLatch latch) throws LatexExecutionException {
+    try {
+      return latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new LatexExecutionException("Interrupted", e);
+    }
+  }
+
+  private static void sleep() throws LatexExecutionException {
+    try {
+      Thread.sleep(100);
+    } catch (InterruptedException e) {
+      throw new LatexExecutionException("Interrupted", e);
+    }
+  }
+}
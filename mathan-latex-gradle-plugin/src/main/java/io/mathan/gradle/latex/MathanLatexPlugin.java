@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.Map;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
 
 public class MathanLatexPlugin implements Plugin<Project> {
 
@@ -29,8 +30,14 @@ public class MathanLatexPlugin implements Plugin<Project> {
     Map<String, Object> map = new HashMap<>();
     map.put("type", MathanLatexTask.class);
     MathanLatexTask task = (MathanLatexTask) project.task(map, "latex");
-    task.getOutputs().upToDateWhen(t -> false);
     task.setConfiguration(extension);
+    Configuration artifacts = project.getConfigurations().maybeCreate("latex");
+    project.afterEvaluate(p -> task.registerArtifacts(artifacts));
+    Map<String, Object> watchMap = new HashMap<>();
+    watchMap.put("type", MathanLatexWatchTask.class);
+    MathanLatexWatchTask watchTask = (MathanLatexWatchTask) project.task(watchMap, "latexWatch");
+    watchTask.getOutputs().upToDateWhen(t -> false);
+    watchTask.setConfiguration(extension);
 
   }
 }
@@ -17,32 +17,172 @@
 package io.mathan.gradle.latex;
 
 import io.mathan.gradle.latex.internal.GradleBuild;
+import io.mathan.gradle.latex.internal.LatexWorkAction;
+import io.mathan.gradle.latex.internal.WorkerBuild;
 import io.mathan.latex.core.LatexExecutionException;
+import io.mathan.latex.core.MathanLatexConfiguration;
 import io.mathan.latex.core.MathanLatexRunner;
+import io.mathan.latex.core.Profile;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
+/**
+ * Task executing the latex process for the current gradle project. The sources, the dependencies and the settings of the steps are declared as inputs and the artifacts as outputs, so the task is up
+ * to date if none of them changed and the artifacts can be taken from the build cache. All paths are relative to the project directory, so the cache can be shared by different hosts. The inputs are
+ * computed from the configuration only, the executables of the TeX distribution are resolved by the work items. So the artifacts can be taken from the cache on hosts without a TeX distribution, but
+ * an update of the TeX distribution does not make the task out of date.
+ *
+ * <p>The documents are built by work items of the {@link WorkerExecutor}, one for each document. So multiple documents and the tasks of other projects are built concurrently within the limit of
+ * the worker leases of Gradle.</p>
+ */
+@CacheableTask
 public class MathanLatexTask extends DefaultTask {
 
   private MathanGradleLatexConfiguration configuration;
+  private final WorkerExecutor workerExecutor;
+
+  @Inject
+  public MathanLatexTask(WorkerExecutor workerExecutor) {
+    this.workerExecutor = workerExecutor;
+    // the output of a build compiling only the changed included files is not complete
+    getOutputs().cacheIf(task -> configuration == null || !configuration.isIncludeOnlyChanged());
+  }
 
   public void setConfiguration(MathanGradleLatexConfiguration configuration) {
     this.configuration = configuration;
   }
 
+  /**
+   * Returns the files in the source directory.
+   *
+   * @return The sources.
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileCollection getSources() {
+    return getProject().fileTree(configuration.getSourceDirectory());
+  }
+
+  /**
+   * Returns the archives of the dependencies. Only their names and their content are considered.
+   *
+   * @return The archives of the dependencies.
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.NAME_ONLY)
+  public FileCollection getDependencies() {
+    Configuration dependencies = getProject().getConfigurations().findByName(configuration.getConfigurationName());
+    return dependencies == null ? getProject().files() : dependencies;
+  }
+
+  /**
+   * Returns the settings of the steps.
+   *
+   * @return The settings by their name.
+   */
+  @Input
+  public Map<String, String> getSettings() {
+    try {
+      return createRunner(createConfiguration()).describeSettings();
+    } catch (LatexExecutionException e) {
+      throw new GradleException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the artifacts provided by the task.
+   *
+   * @return The artifacts by their name.
+   */
+  @OutputFiles
+  public Map<String, File> getArtifacts() {
+    Map<String, File> artifacts = new LinkedHashMap<>();
+    try {
+      createRunner(createConfiguration()).getArtifacts().values().forEach(artifact -> artifacts.put(artifact.getName(), artifact));
+    } catch (LatexExecutionException e) {
+      throw new GradleException(e.getMessage(), e);
+    }
+    return artifacts;
+  }
+
+  /**
+   * Registers the artifacts of the task on the given configuration, so they can be published or consumed by other projects. The artifacts of the documents other than the first one are registered
+   * with the name of the document as classifier.
+   *
+   * @param artifacts The configuration to register the artifacts on.
+   */
+  void registerArtifacts(Configuration artifacts) {
+    try {
+      createRunner(createConfiguration()).getArtifacts().forEach((classifier, artifact) -> getProject().getArtifacts().add(artifacts.getName(), artifact, published -> {
+        published.setClassifier(classifier.isEmpty() ? null : classifier);
+        published.builtBy(this);
+      }));
+    } catch (LatexExecutionException e) {
+      getLogger().warn(String.format("[mathan] artifacts not registered: %s", e.getMessage()));
+    }
+  }
+
   /**
    * Task executing the latex process for the current gradle project.
    */
   @TaskAction
   public void latex() {
-    configuration.setKeepIntermediateFiles(true);
-
-    MathanLatexRunner runner = new MathanLatexRunner(configuration, new GradleBuild(this.getProject(), this, configuration));
+    // the extension of the project cannot be passed to a work item
+    MathanLatexConfiguration workerConfiguration = createConfiguration();
+    GradleBuild build = new GradleBuild(this.getProject(), this, configuration);
+    List<String> documents;
     try {
-      runner.execute();
+      documents = new MathanLatexRunner(workerConfiguration, build).getDocuments();
     } catch (LatexExecutionException e) {
-      e.printStackTrace();
+      throw new GradleException(e.getMessage(), e);
+    }
+    WorkerBuild workerBuild = build.toWorkerBuild();
+    WorkQueue queue = workerExecutor.noIsolation();
+    if (documents.isEmpty()) {
+      submit(queue, workerConfiguration, workerBuild, null);
+    } else {
+      documents.forEach(document -> submit(queue, workerConfiguration, workerBuild, document));
+    }
+  }
+
+  private static void submit(WorkQueue queue, MathanLatexConfiguration configuration, WorkerBuild build, String document) {
+    queue.submit(LatexWorkAction.class, parameters -> {
+      parameters.getConfiguration().set(configuration);
+      parameters.getBuild().set(build);
+      parameters.getDocument().set(document);
+    });
+  }
+
+  /**
+   * Creates the configuration of the build from the extension of the project and the profile selected by a project property. The extension itself is not modified.
+   */
+  private MathanLatexConfiguration createConfiguration() {
+    MathanLatexConfiguration latexConfiguration = new MathanLatexConfiguration(configuration);
+    latexConfiguration.setKeepIntermediateFiles(true);
+    Object profile = getProject().findProperty(Profile.PROPERTY);
+    if (profile != null) {
+      latexConfiguration.setProfile(profile.toString());
     }
+    return latexConfiguration;
   }
 
+  private MathanLatexRunner createRunner(MathanLatexConfiguration latexConfiguration) {
+    return new MathanLatexRunner(latexConfiguration, new GradleBuild(this.getProject(), this, configuration));
+  }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.gradle.latex;
+
+import io.mathan.gradle.latex.internal.GradleBuild;
+import io.mathan.latex.core.LatexExecutionException;
+import io.mathan.latex.core.MathanLatexRunner;
+import io.mathan.latex.core.Profile;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.TaskAction;
+
+public class MathanLatexWatchTask extends DefaultTask {
+
+  private MathanGradleLatexConfiguration configuration;
+
+  public void setConfiguration(MathanGradleLatexConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Task rebuilding the LaTeX source document of the current gradle project whenever a file in the source directory changes. The task keeps running until gradle is stopped.
+   */
+  @TaskAction
+  public void watch() {
+    Object profile = getProject().findProperty(Profile.PROPERTY);
+    if (profile != null) {
+      configuration.setProfile(profile.toString());
+    }
+    MathanLatexRunner runner = new MathanLatexRunner(configuration, new GradleBuild(this.getProject(), this, configuration));
+    try {
+      runner.watch();
+    } catch (LatexExecutionException e) {
+      throw new GradleException(e.getMessage(), e);
+    }
+  }
+
+}
@@ -19,22 +19,16 @@ package io.mathan.gradle.latex.internal;
 import io.mathan.gradle.latex.MathanGradleLatexConfiguration;
 import io.mathan.latex.core.Build;
 import io.mathan.latex.core.BuildLog;
-import io.mathan.latex.core.Constants;
-import io.mathan.latex.core.LatexExecutionException;
-import io.mathan.latex.core.Utils;
+import io.mathan.latex.core.ResourceFilter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.file.ConfigurableFileTree;
-import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
 import org.zeroturnaround.exec.stream.LogOutputStream;
 
 public class GradleBuild implements Build {
@@ -83,13 +77,17 @@ public class GradleBuild implements Build {
   }
 
   @Override
-  public void resolveDependencies(File workingDirectory) throws LatexExecutionException {
+  public void attachArtifact(File artifact, String classifier) {
+    // the artifacts are registered on the configuration latex when the project is evaluated
+  }
+
+  @Override
+  public List<File> getDependencyArchives() {
     Configuration compile = getProject().getConfigurations().findByName(getConfiguration().getConfigurationName());
-    if (compile != null) {
-      for (File file : compile.getFiles()) {
-        extractArchive(file, workingDirectory);
-      }
+    if (compile == null) {
+      return Collections.emptyList();
     }
+    return new ArrayList<>(compile.getFiles());
   }
 
   @Override
@@ -114,51 +112,21 @@ public class GradleBuild implements Build {
     return configuration;
   }
 
-  private void extractArchive(File archive, File workingDirectory) throws LatexExecutionException {
-    File archiveContent;
-    try {
-      archiveContent = Utils.extractArchive(archive);
-    } catch (IOException e) {
-      throw new LatexExecutionException(String.format("Could not copy artifact %s", archive.getName()), e);
-    }
+  /**
+   * Creates a build for the work items of the task. The values of the build and the archives of the dependencies are resolved from the project, as the project must not be accessed by a work item.
+   *
+   * @return The build for the work items.
+   */
+  public WorkerBuild toWorkerBuild() {
+    return new WorkerBuild(getBasedir(), getArtifactId(), getVersion(), getResourceFilter(), getDependencyArchives());
+  }
+
+  @Override
+  public ResourceFilter getResourceFilter() {
     ConfigurableFileTree fileTree = getConfiguration().getResources();
     if (fileTree == null) {
-      fileTree = getProject().fileTree(archiveContent.getAbsolutePath());
-      for (String include : Constants.RESOURCES_DEFAULT_EXTENSTIONS) {
-        fileTree.include("**/*." + include);
-      }
-    } else {
-      fileTree.setDir(archiveContent.getAbsolutePath());
-    }
-    fileTree.visit(new FileVisitor() {
-      @Override
-      public void visitDir(FileVisitDetails dirDetails) {
-        // only files need to be extracted, directories will be created automatically with visitFile
-      }
-
-      @Override
-      public void visitFile(FileVisitDetails fileDetails) {
-        try {
-          File dest = new File(workingDirectory, fileDetails.getRelativePath().getPathString());
-          getLog().info(String.format("[mathan] including resource %s", fileDetails.getRelativePath().getPathString()));
-          if (!dest.getParentFile().exists() && !dest.getParentFile().mkdirs()) {
-            throw new IOException("Could not create directory " + dest.getParentFile().getAbsolutePath());
-          }
-          try (FileInputStream in = new FileInputStream(fileDetails.getFile())) {
-            FileOutputStream out = new FileOutputStream(dest);
-            IOUtils.copy(in, out);
-            out.close();
-          }
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
-    });
-
-    try {
-      FileUtils.deleteDirectory(archiveContent);
-    } catch (IOException e) {
-      throw new LatexExecutionException(String.format("Could not copy artifact %s", archive.getName()), e);
+      return ResourceFilter.createDefault();
     }
+    return new ResourceFilter(fileTree.getIncludes(), fileTree.getExcludes(), true);
   }
 }
@@ -27,6 +27,11 @@ public class GradleBuildLog implements BuildLog {
     this.logger = logger;
   }
 
+  @Override
+  public void debug(String message) {
+    this.logger.debug(message);
+  }
+
   @Override
   public void error(String message) {
     this.logger.error(message);
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.gradle.latex.internal;
+
+import io.mathan.latex.core.LatexExecutionException;
+import io.mathan.latex.core.MathanLatexConfiguration;
+import io.mathan.latex.core.MathanLatexRunner;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Work item building a LaTeX source document. Gradle runs the work items of all tasks concurrently within the limit of its worker leases (--max-workers).
+ */
+public abstract class LatexWorkAction implements WorkAction<LatexWorkAction.Parameters> {
+
+  /**
+   * The parameters of a work item.
+   */
+  public interface Parameters extends WorkParameters {
+
+    /**
+     * Returns the configuration of the build.
+     *
+     * @return The configuration.
+     */
+    Property<MathanLatexConfiguration> getConfiguration();
+
+    /**
+     * Returns the build the document belongs to.
+     *
+     * @return The build.
+     */
+    Property<WorkerBuild> getBuild();
+
+    /**
+     * Returns the document to build if multiple documents are configured.
+     *
+     * @return The path of the LaTeX source document relative to the source directory or no value if a single document is built.
+     */
+    Property<String> getDocument();
+  }
+
+  @Override
+  public void execute() {
+    Parameters parameters = getParameters();
+    MathanLatexRunner runner = new MathanLatexRunner(parameters.getConfiguration().get(), parameters.getBuild().get());
+    try {
+      if (parameters.getDocument().isPresent()) {
+        runner.execute(parameters.getDocument().get());
+      } else {
+        runner.execute();
+      }
+    } catch (LatexExecutionException e) {
+      throw new GradleException("Execution of Mathan LaTeX Runner failed", e);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.gradle.latex.internal;
+
+import io.mathan.latex.core.Build;
+import io.mathan.latex.core.BuildLog;
+import io.mathan.latex.core.ResourceFilter;
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.zeroturnaround.exec.stream.LogOutputStream;
+
+/**
+ * Build implementation for the work items of a Gradle task. The project must not be accessed by a work item, so all values of the build are taken from the project before the work item is submitted.
+ */
+public class WorkerBuild implements Build, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final File basedir;
+  private final String artifactId;
+  private final String version;
+  private final ResourceFilter resourceFilter;
+  private final List<File> dependencyArchives;
+
+  WorkerBuild(File basedir, String artifactId, String version, ResourceFilter resourceFilter, List<File> dependencyArchives) {
+    this.basedir = basedir;
+    this.artifactId = artifactId;
+    this.version = version;
+    this.resourceFilter = resourceFilter;
+    this.dependencyArchives = new ArrayList<>(dependencyArchives);
+  }
+
+  @Override
+  public BuildLog getLog() {
+    return new GradleBuildLog(getLogger());
+  }
+
+  @Override
+  public File getBasedir() {
+    return basedir;
+  }
+
+  @Override
+  public String getArtifactId() {
+    return artifactId;
+  }
+
+  @Override
+  public String getVersion() {
+    return version;
+  }
+
+  @Override
+  public void setArtifact(File artifact) {
+    // artifact is attached automatically when using publishToMavenLocal in the gradle build
+  }
+
+  @Override
+  public void attachArtifact(File artifact, String classifier) {
+    // the artifacts are registered on the configuration latex when the project is evaluated
+  }
+
+  @Override
+  public ResourceFilter getResourceFilter() {
+    return resourceFilter;
+  }
+
+  @Override
+  public List<File> getDependencyArchives() {
+    return dependencyArchives;
+  }
+
+  @Override
+  public LogOutputStream getRedirectOutput(String prefix) {
+    return GradleLogOutputStream.toDebug(getLogger(), prefix);
+  }
+
+  @Override
+  public LogOutputStream getRedirectError(String prefix) {
+    return GradleLogOutputStream.toError(getLogger(), prefix);
+  }
+
+  private static Logger getLogger() {
+    return Logging.getLogger(WorkerBuild.class);
+  }
+}
@@ -23,6 +23,7 @@ import io.mathan.maven.it.VerifierException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -155,6 +156,37 @@ public abstract class AbstractIntegrationTest {
     return verifier;
   }
 
+  /**
+   * Executes the goal/task of the given verifier again. The check of Gradle if the task is up to date is disabled, so the build itself decides if it can be skipped.
+   *
+   * @param verifier The verifier of the first execution.
+   */
+  protected void rebuild(Verifier verifier) throws VerifierException {
+    switch (build) {
+      case Maven:
+        verifier.execute(latexGoal());
+        break;
+      case Gradle:
+        verifier.execute(latexGoal(), "--rerun-tasks");
+        break;
+    }
+  }
+
+  /**
+   * Replaces the given text in a file of the project of the given verifier, e.g. to change a source file or the configuration between two executions.
+   *
+   * @param verifier The verifier of the project.
+   * @param file The path of the file relative to the project directory.
+   * @param text The text to replace.
+   * @param replacement The replacement.
+   */
+  protected final void modify(Verifier verifier, String file, String text, String replacement) throws IOException {
+    File target = verifier.getFile(file);
+    String content = FileUtils.readFileToString(target, StandardCharsets.UTF_8);
+    Assert.assertTrue(String.format("Text '%s' not found in %s", text, file), content.contains(text));
+    FileUtils.writeStringToFile(target, content.replace(text, replacement), StandardCharsets.UTF_8);
+  }
+
   /**
    * Publishs the artifact of the given project into the local repository.
    *
@@ -195,10 +227,18 @@ public abstract class AbstractIntegrationTest {
     verifier.assertFilePresent(file);
   }
 
+  protected final void assertFileNotPresent(Verifier verifier, String file) throws VerifierException {
+    verifier.assertFileNotPresent(file);
+  }
+
   protected final void verifyTextInLog(Verifier verifier, String text) throws VerifierException {
     verifier.assertLogContainsText(text);
   }
 
+  protected final void verifyTextNotInLog(Verifier verifier, String text) throws VerifierException {
+    verifier.assertLogNotContainsText(text);
+  }
+
   protected final void assertStepExecuted(Verifier verifier, Step step) throws VerifierException {
     verifier.assertLogContainsText(String.format("[mathan] execution: %s", step.getId()));
   }
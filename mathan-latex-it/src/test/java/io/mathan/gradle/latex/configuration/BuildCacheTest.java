@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mathan.gradle.latex.configuration;
+
+import io.mathan.gradle.latex.AbstractIntegrationTest;
+import io.mathan.latex.core.Step;
+import io.mathan.maven.it.Verifier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class BuildCacheTest extends AbstractIntegrationTest {
+
+  private static final String CACHE_HIT = "[mathan] build cache hit";
+
+  public BuildCacheTest(Build build) {
+    super(build);
+  }
+
+  @Test
+  public void sourceChanged() throws Exception {
+    publish("dependencies", "dependency");
+    Verifier verifier = verifier("configuration", "buildcache");
+    verifyTextNotInLog(verifier, CACHE_HIT);
+    rebuild(verifier);
+    verifyTextInLog(verifier, CACHE_HIT);
+    modify(verifier, "src/main/tex/main.tex", "Here is some text.", "Here is some changed text.");
+    rebuild(verifier);
+    verifyTextNotInLog(verifier, CACHE_HIT);
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+  }
+
+  @Test
+  public void resourcesChanged() throws Exception {
+    publish("dependencies", "dependency");
+    Verifier verifier = verifier("configuration", "buildcache");
+    rebuild(verifier);
+    verifyTextInLog(verifier, CACHE_HIT);
+    if (build == Build.Maven) {
+      modify(verifier, "pom.xml", "<include>**/*.bib</include>", "<include>**/*.bib</include><include>**/*.tex</include>");
+    } else {
+      modify(verifier, "build.gradle", "['**/*.bib']", "['**/*.bib', '**/*.tex']");
+    }
+    rebuild(verifier);
+    verifyTextNotInLog(verifier, CACHE_HIT);
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mathan.gradle.latex.configuration;
+
+import io.mathan.gradle.latex.AbstractIntegrationTest;
+import io.mathan.maven.it.Verifier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ConvergenceTest extends AbstractIntegrationTest {
+
+  public ConvergenceTest(Build build) {
+    super(build);
+  }
+
+  @Test
+  public void convergence() throws Exception {
+    Verifier verifier = verifier("configuration", "convergence");
+    verifyTextInLog(verifier, "[mathan] document converged after");
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mathan.gradle.latex.configuration;
+
+import io.mathan.gradle.latex.AbstractIntegrationTest;
+import io.mathan.latex.core.Step;
+import io.mathan.maven.it.Verifier;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class IncludeOnlyChangedTest extends AbstractIntegrationTest {
+
+  private static final String INCLUDE_ONLY = "[mathan] compiling changed includes only";
+
+  public IncludeOnlyChangedTest(Build build) {
+    super(build);
+  }
+
+  @Test
+  public void includeChanged() throws Exception {
+    Verifier verifier = verifier("configuration", "includeonlychanged");
+    verifyTextNotInLog(verifier, INCLUDE_ONLY);
+    modify(verifier, "src/main/tex/chapter2.tex", "Text of the second chapter.", "Changed text of the second chapter.");
+    rebuild(verifier);
+    verifyTextInLog(verifier, INCLUDE_ONLY + ": chapter2");
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+  }
+
+  @Test
+  public void mainFileChanged() throws Exception {
+    Verifier verifier = verifier("configuration", "includeonlychanged");
+    modify(verifier, "src/main/tex/chapter2.tex", "Text of the second chapter.", "Changed text of the second chapter.");
+    modify(verifier, "src/main/tex/sample.tex", "\\tableofcontents", "\\tableofcontents\n  \\listoffigures");
+    rebuild(verifier);
+    verifyTextNotInLog(verifier, INCLUDE_ONLY);
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+  }
+
+  @Test
+  public void completeBuildAfterPartialBuild() throws Exception {
+    Verifier verifier = verifier("configuration", "includeonlychanged");
+    modify(verifier, "src/main/tex/chapter1.tex", "Text of the first chapter.", "Changed text of the first chapter.");
+    rebuild(verifier);
+    verifyTextInLog(verifier, INCLUDE_ONLY + ": chapter1");
+    // the document declaring \includeonly is replaced by the original document after the partial build
+    String document = FileUtils.readFileToString(verifier.getFile("target/latex/sample.tex"), StandardCharsets.UTF_8);
+    Assert.assertFalse(document.contains("\\includeonly"));
+    rebuild(verifier);
+    verifyTextNotInLog(verifier, INCLUDE_ONLY);
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mathan.gradle.latex.configuration;
+
+import io.mathan.gradle.latex.AbstractIntegrationTest;
+import io.mathan.latex.core.Step;
+import io.mathan.maven.it.Verifier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class StepCacheTest extends AbstractIntegrationTest {
+
+  private static final String BIBTEX_CACHED = "[mathan] execution cached: bibtex";
+
+  public StepCacheTest(Build build) {
+    super(build);
+  }
+
+  @Test
+  public void bibliographyChanged() throws Exception {
+    Verifier verifier = verifier("configuration", "stepcache");
+    assertStepExecuted(verifier, Step.STEP_BIBTEX);
+    rebuild(verifier);
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+    verifyTextInLog(verifier, BIBTEX_CACHED);
+    modify(verifier, "src/main/tex/sample.bib", "Awesom title", "Changed title");
+    rebuild(verifier);
+    verifyTextNotInLog(verifier, BIBTEX_CACHED);
+    assertStepExecuted(verifier, Step.STEP_BIBTEX);
+  }
+}
@@ -35,4 +35,12 @@ public class TexFileTest extends AbstractIntegrationTest {
     assertStepSkipped(verifier, Step.STEP_MAKEINDEX);
     assertStepSkipped(verifier, Step.STEP_MAKEINDEXNOMENCL);
   }
+
+  @Test
+  public void texfilePattern() throws Exception {
+    Verifier verifier = verifier("configuration", "texfiles", latexGoal(), "pdf");
+    assertFilePresent(verifier, "target/texfiles-1.0.2-sample.pdf");
+    assertFileNotPresent(verifier, "target/texfiles-1.0.2-master.pdf");
+    verifyTextInLog(verifier, "[mathan] building 2 documents");
+  }
 }
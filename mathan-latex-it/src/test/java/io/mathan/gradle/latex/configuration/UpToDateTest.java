@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mathan.gradle.latex.configuration;
+
+import io.mathan.gradle.latex.AbstractIntegrationTest;
+import io.mathan.latex.core.Step;
+import io.mathan.maven.it.Verifier;
+import java.util.UUID;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class UpToDateTest extends AbstractIntegrationTest {
+
+  public UpToDateTest(Build build) {
+    super(build);
+  }
+
+  @Test
+  public void sourceChanged() throws Exception {
+    Verifier verifier = verifier("configuration", "uptodate");
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+    verifier.execute(latexGoal());
+    verifyTextInLog(verifier, getUpToDateText());
+    modify(verifier, "src/main/tex/sample.tex", "Here is some text.", "Here is some changed text.");
+    verifier.execute(latexGoal());
+    verifyTextNotInLog(verifier, getUpToDateText());
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+  }
+
+  @Test
+  public void buildCache() throws Exception {
+    Assume.assumeTrue("The build cache is only supported by Gradle", build == Build.Gradle);
+    Verifier verifier = verifier("configuration", "uptodate");
+    // the local build cache is shared by all builds, so the document must not have been built before
+    modify(verifier, "src/main/tex/sample.tex", "Here is some text.", "Here is some text " + UUID.randomUUID() + ".");
+    verifier.execute(latexGoal(), "--build-cache");
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+    FileUtils.deleteDirectory(verifier.getFile("target"));
+    verifier.execute(latexGoal(), "--build-cache");
+    verifyTextInLog(verifier, "FROM-CACHE");
+    assertFilePresent(verifier, "target/uptodate-1.0.2.pdf");
+  }
+
+  /**
+   * Returns the text logged if the goal/task is skipped because the artifacts are up to date.
+   */
+  private String getUpToDateText() {
+    return build == Build.Maven ? "[mathan] artifacts are up to date, skipping build" : "UP-TO-DATE";
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mathan.gradle.latex.dependencies;
+
+import io.mathan.gradle.latex.AbstractIntegrationTest;
+import io.mathan.latex.core.Step;
+import io.mathan.maven.it.Verifier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class DependencyCacheTest extends AbstractIntegrationTest {
+
+  private static final String CACHE_HIT = "[mathan] dependency cache hit";
+
+  public DependencyCacheTest(Build build) {
+    super(build);
+  }
+
+  @Test
+  public void resourcesChanged() throws Exception {
+    publish("dependencies", "dependency");
+    Verifier verifier = verifier("dependencies", "dependencycache");
+    verifyTextNotInLog(verifier, CACHE_HIT);
+    rebuild(verifier);
+    verifyTextInLog(verifier, CACHE_HIT);
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+    // the resources are extracted again for a different filter
+    if (build == Build.Maven) {
+      modify(verifier, "pom.xml", "<include>**/*.tex</include>", "<include>**/*.tex</include><include>**/*.bib</include>");
+    } else {
+      modify(verifier, "build.gradle", "['**/*.tex']", "['**/*.tex', '**/*.bib']");
+    }
+    rebuild(verifier);
+    verifyTextNotInLog(verifier, CACHE_HIT);
+    assertStepExecuted(verifier, Step.STEP_PDFLATEX);
+  }
+}
@@ -20,20 +20,34 @@ import io.mathan.latex.core.Constants;
 import io.mathan.latex.core.LatexExecutionException;
 import io.mathan.latex.core.MathanLatexConfiguration;
 import io.mathan.latex.core.MathanLatexRunner;
+import io.mathan.latex.core.Profile;
 import io.mathan.latex.core.Step;
+import io.mathan.latex.core.Utils;
 import io.mathan.maven.latex.internal.MavenBuild;
+import io.mathan.maven.latex.internal.StalenessCheck;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Base64;
 import java.util.List;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
 import org.apache.maven.shared.model.fileset.FileSet;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.repository.RemoteRepository;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 /**
  * The MathanLatexMojo provides the goal "latex" to generate dvi, ps or pdf out of LaTeX (.tex) documents. Therefore all the LaTeX tools are executed in a defined order. There are pre-defined defaults
@@ -41,7 +55,7 @@ import org.eclipse.aether.repository.RemoteRepository;
  *
  * @author Matthias Hanisch (reallyinsane)
  */
-@Mojo(name = "latex")
+@Mojo(name = "latex", threadSafe = true)
 public class MathanLatexMojo extends AbstractMojo {
 
   /**
@@ -110,6 +124,18 @@ public class MathanLatexMojo extends AbstractMojo {
   @Component
   private RepositorySystem repoSystem;
 
+  /**
+   * Helper for attaching the artifacts of multiple documents.
+   */
+  @Component
+  private MavenProjectHelper projectHelper;
+
+  /**
+   * The context of an incremental build (e.g. of an IDE).
+   */
+  @Component
+  private BuildContext buildContext;
+
   /**
    * The current repository/network configuration of Maven.
    */
@@ -122,6 +148,9 @@ public class MathanLatexMojo extends AbstractMojo {
   @Parameter(defaultValue = "${project.remoteProjectRepositories}", required = true, readonly = true)
   private List<RemoteRepository> remoteRepos;
 
+  /**
+   * The LaTeX source document to build. Multiple documents can be specified as comma-separated list or with the wildcards '*', '**' and '?'.
+   */
   @Parameter
   private String texFile;
 
@@ -135,13 +164,253 @@ public class MathanLatexMojo extends AbstractMojo {
   @Parameter(defaultValue = "true")
   private boolean haltOnError;
 
+  /**
+   * Parameter for controlling if LaTeX passes should be skipped once the auxiliary files do not change any more. Additional passes are executed if the document has not converged after the
+   * configured build steps.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean convergence;
+
+  /**
+   * The maximum number of LaTeX passes executed if {@link #convergence} is enabled.
+   */
+  @Parameter(defaultValue = "5")
+  private int maxLatexPasses;
+
+  /**
+   * Parameter for controlling if the build should be skipped if neither the sources, the dependencies, the steps nor the executables changed since the last build.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean buildCache;
+
+  /**
+   * Parameter for controlling if steps without a data dependency (e.g. bibtex and makeindex) should be executed concurrently.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean parallelSteps;
+
+  /**
+   * Parameter for controlling if optional steps should be skipped without starting a process if the document does not need them.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean planSteps;
+
+  /**
+   * Parameter for controlling if the results of bibtex, biber, makeindex and makeindexnomencl should be cached and reused as long as their inputs do not change.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean stepCache;
+
+  /**
+   * Parameter for controlling if the preamble of the LaTeX source document should be precompiled into a format file which is loaded by the LaTeX passes of latex, pdflatex and xelatex.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean precompilePreamble;
+
+  /**
+   * The time in milliseconds without further changes in the source directory before a rebuild is started by the goal "watch".
+   */
+  @Parameter(defaultValue = "500")
+  private long watchDebounce;
+
+  /**
+   * The number of errors reported by a LaTeX pass to abort the pass at. With 0 a LaTeX pass is never aborted.
+   */
+  @Parameter(defaultValue = "0")
+  private int maxErrors;
+
+  /**
+   * The maximum time in seconds a single step may run. With 0 there is no limit.
+   */
+  @Parameter(defaultValue = "0")
+  private long stepTimeout;
+
+  /**
+   * The maximum time in seconds a single step may run without writing any output. With 0 there is no limit.
+   */
+  @Parameter(defaultValue = "0")
+  private long idleTimeout;
+
+  /**
+   * The maximum time in seconds for executing all steps of a build. With 0 there is no limit.
+   */
+  @Parameter(defaultValue = "0")
+  private long buildTimeout;
+
+  /**
+   * Parameter for controlling if the extracted resources of the dependencies should be cached in a directory shared by all builds on the host.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean dependencyCache;
+
+  /**
+   * The directory of the dependency cache. By default the directory .mathan/cache in the home directory of the user is used.
+   */
+  @Parameter
+  private String dependencyCacheDirectory;
+
+  /**
+   * The maximum size of the dependency cache in megabytes.
+   */
+  @Parameter(defaultValue = "1024")
+  private long dependencyCacheSize;
+
+  /**
+   * Parameter for controlling if the source directory and the resources of the dependencies should be searched by the TeX tools instead of being copied into the working directory.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean overlay;
+
+  /**
+   * Parameter for controlling if the input files read by the TeX engine should be recorded, so the build is skipped if none of them changed.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean recorder;
+
+  /**
+   * Parameter for controlling if LaTeX passes except the final one should only write the auxiliary files.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean draftPasses;
+
+  /**
+   * User-defined profiles which can be selected with the parameter profile. They take precedence over the predefined profiles draft and release.
+   */
+  @Parameter
+  private Profile[] profiles;
+
+  /**
+   * The id of the profile to apply to the build.
+   */
+  @Parameter(property = Profile.PROPERTY)
+  private String profile;
+
+  /**
+   * Parameter for controlling if only the files included with \include which changed since the last build should be compiled. Requires keepIntermediateFiles.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean includeOnlyChanged;
+
+  /**
+   * The working directory the steps are executed in, relative to the project directory. By default this is target/latex for the default execution and target/latex-&lt;execution id&gt; for all
+   * other executions, so multiple executions in the same project do not share any state.
+   */
+  @Parameter
+  private String workingDirectory;
+
+  /**
+   * The id of the current execution of the mojo.
+   */
+  @Parameter(defaultValue = "${mojoExecution.executionId}", readonly = true)
+  private String executionId;
+
+  /**
+   * Parameter for controlling if the goal should be skipped if the configuration, the dependencies and the toolchain are unchanged and neither the pom.xml, its parents nor the sources were modified
+   * since the last build started. Files outside of the source directory are not checked, so this is disabled by default.
+   */
+  @Parameter(property = "mathan.skipUpToDate", defaultValue = "false")
+  private boolean skipUpToDate;
+
+  /**
+   * The descriptor of this plugin.
+   */
+  @Parameter(defaultValue = "${plugin}", readonly = true)
+  private PluginDescriptor pluginDescriptor;
 
   /**
    * {@inheritDoc}
    */
   public void execute() throws MojoExecutionException, MojoFailureException {
     configureResourcesOfDependencies();
+    MavenBuild build = new MavenBuild(this);
+    MathanLatexConfiguration configuration = createConfiguration();
+    MathanLatexRunner runner = new MathanLatexRunner(configuration, build);
+    StalenessCheck stalenessCheck = null;
+    try {
+      stalenessCheck = isSkipUpToDate() ? createStalenessCheck(build, configuration, runner) : null;
+      if (stalenessCheck != null && stalenessCheck.isUpToDate(new File(project.getBasedir(), sourceDirectory))) {
+        getLog().info("[mathan] artifacts are up to date, skipping build");
+        return;
+      }
+      run(runner);
+    } catch (LatexExecutionException e) {
+      if (stalenessCheck != null) {
+        stalenessCheck.reset();
+      }
+      throw new MojoExecutionException("Execution of Mathan LaTeX Runner failed", e);
+    }
+    if (stalenessCheck != null) {
+      stalenessCheck.store();
+    }
+  }
+
+  /**
+   * Returns if the goal should be skipped if the artifacts of the last build are up to date.
+   *
+   * @return <code>true</code> if the goal should be skipped.
+   */
+  protected boolean isSkipUpToDate() {
+    return skipUpToDate;
+  }
+
+  /**
+   * Creates the staleness check for the current execution. The version of the plugin, the effective configuration including the values of properties set on the command line, the resolved
+   * dependencies, the effective settings of the steps and the location, size and checksum of the executables are compared with the last build.
+   */
+  private StalenessCheck createStalenessCheck(MavenBuild build, MathanLatexConfiguration configuration, MathanLatexRunner runner) throws LatexExecutionException {
+    StringBuilder description = new StringBuilder();
+    if (pluginDescriptor != null) {
+      description.append(pluginDescriptor.getPluginLookupKey()).append(':').append(pluginDescriptor.getVersion()).append('\n');
+      Plugin plugin = project.getPlugin(pluginDescriptor.getPluginLookupKey());
+      if (plugin != null) {
+        description.append(plugin.getConfiguration()).append('\n');
+        PluginExecution execution = executionId == null ? null : (PluginExecution) plugin.getExecutionsAsMap().get(executionId);
+        if (execution != null) {
+          description.append(execution.getConfiguration()).append('\n');
+        }
+      }
+    }
+    description.append("configuration=").append(checksum(configuration)).append('\n');
+    List<Dependency> dependencies = project.getDependencies();
+    for (Dependency dependency : dependencies) {
+      description.append("dependency=").append(dependency.getManagementKey()).append(':').append(dependency.getVersion()).append('\n');
+    }
+    for (File archive : build.getDependencyArchives()) {
+      description.append("archive=").append(archive.getAbsolutePath()).append(':').append(archive.length()).append('\n');
+    }
+    runner.describeSettings().forEach((key, value) -> description.append(key).append('=').append(value).append('\n'));
+    runner.describeToolchain().forEach((name, executable) -> description.append(name).append('=').append(executable).append('\n'));
+    File directory = new File(getWorkingDirectory());
+    if (!directory.isAbsolute()) {
+      directory = new File(project.getBasedir(), directory.getPath());
+    }
+    return new StalenessCheck(build, buildContext, new File(directory.getParentFile(), directory.getName() + ".stamp"), description.toString());
+  }
 
+  /**
+   * Returns the checksum of the serialized configuration, so any value of the configuration is compared regardless of where it was set.
+   */
+  private static String checksum(MathanLatexConfiguration configuration) throws LatexExecutionException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(configuration);
+    } catch (IOException e) {
+      throw new LatexExecutionException("Could not serialize the configuration", e);
+    }
+    return Utils.checksum(Base64.getEncoder().encodeToString(bytes.toByteArray()));
+  }
+
+  /**
+   * Runs the build for the current maven project.
+   *
+   * @param runner The runner to use.
+   * @throws LatexExecutionException If the build failed.
+   */
+  protected void run(MathanLatexRunner runner) throws LatexExecutionException {
+    runner.execute();
+  }
+
+  private MathanLatexConfiguration createConfiguration() {
     MathanLatexConfiguration latexConfiguration = new MathanLatexConfiguration();
     latexConfiguration.setLatexSteps(latexSteps);
     latexConfiguration.setBuildSteps(buildSteps);
@@ -154,15 +423,43 @@ public class MathanLatexMojo extends AbstractMojo {
     latexConfiguration.setSteps(steps);
     latexConfiguration.setTexBin(texBin);
     latexConfiguration.setTexFile(texFile);
+    latexConfiguration.setConvergence(convergence);
+    latexConfiguration.setMaxLatexPasses(maxLatexPasses);
+    latexConfiguration.setBuildCache(buildCache);
+    latexConfiguration.setParallelSteps(parallelSteps);
+    latexConfiguration.setPlanSteps(planSteps);
+    latexConfiguration.setStepCache(stepCache);
+    latexConfiguration.setPrecompilePreamble(precompilePreamble);
+    latexConfiguration.setWatchDebounce(watchDebounce);
+    latexConfiguration.setMaxErrors(maxErrors);
+    latexConfiguration.setStepTimeout(stepTimeout);
+    latexConfiguration.setIdleTimeout(idleTimeout);
+    latexConfiguration.setBuildTimeout(buildTimeout);
+    latexConfiguration.setDependencyCache(dependencyCache);
+    latexConfiguration.setDependencyCacheDirectory(dependencyCacheDirectory);
+    latexConfiguration.setDependencyCacheSize(dependencyCacheSize);
+    latexConfiguration.setOverlay(overlay);
+    latexConfiguration.setRecorder(recorder);
+    latexConfiguration.setDraftPasses(draftPasses);
+    latexConfiguration.setProfiles(profiles);
+    latexConfiguration.setProfile(profile);
+    latexConfiguration.setIncludeOnlyChanged(includeOnlyChanged);
+    latexConfiguration.setWorkingDirectory(getWorkingDirectory());
+    return latexConfiguration;
+  }
 
-    MavenBuild build = new MavenBuild(this);
-
-    MathanLatexRunner runner = new MathanLatexRunner(latexConfiguration, build);
-    try {
-      runner.execute();
-    } catch (LatexExecutionException e) {
-      throw new MojoExecutionException("Execution of Mathan LaTeX Runner failed", e);
+  /**
+   * Returns the working directory for the current execution. Executions declared in the pom.xml use their own working directory, while the default executions (e.g. of the packaging pdf or from the
+   * command line) use target/latex.
+   */
+  private String getWorkingDirectory() {
+    if (workingDirectory != null && !workingDirectory.isEmpty()) {
+      return workingDirectory;
+    }
+    if (executionId == null || executionId.isEmpty() || executionId.startsWith("default-")) {
+      return Constants.WORKING_DIRECTORY;
     }
+    return Constants.WORKING_DIRECTORY + "-" + executionId;
   }
 
   private void configureResourcesOfDependencies() {
@@ -186,6 +483,10 @@ public class MathanLatexMojo extends AbstractMojo {
     return repoSystem;
   }
 
+  public MavenProjectHelper getProjectHelper() {
+    return projectHelper;
+  }
+
   public RepositorySystemSession getRepoSession() {
     return repoSession;
   }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.maven.latex;
+
+import io.mathan.latex.core.LatexExecutionException;
+import io.mathan.latex.core.MathanLatexRunner;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * The MathanLatexWatchMojo provides the goal "watch" to rebuild the LaTeX (.tex) document whenever a file in the source directory changes. The goal keeps running until maven is stopped. It supports
+ * the same configuration as the goal "latex".
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+@Mojo(name = "watch", threadSafe = true)
+public class MathanLatexWatchMojo extends MathanLatexMojo {
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean isSkipUpToDate() {
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void run(MathanLatexRunner runner) throws LatexExecutionException {
+    runner.watch();
+  }
+}
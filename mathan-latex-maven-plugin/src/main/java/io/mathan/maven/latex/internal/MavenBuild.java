@@ -19,20 +19,18 @@ package io.mathan.maven.latex.internal;
 import io.mathan.latex.core.Build;
 import io.mathan.latex.core.BuildLog;
 import io.mathan.latex.core.LatexExecutionException;
-import io.mathan.latex.core.Utils;
+import io.mathan.latex.core.ResourceFilter;
 import io.mathan.maven.latex.MathanLatexMojo;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import java.util.Map;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.model.fileset.FileSet;
-import org.apache.maven.shared.model.fileset.util.FileSetManager;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
@@ -49,6 +47,16 @@ public class MavenBuild implements Build {
 
   private final MathanLatexMojo mojo;
 
+  /**
+   * The archives of the dependencies, resolved once per build.
+   */
+  private List<File> dependencyArchives;
+
+  /**
+   * The artifacts set or attached by the build by their classifier. The artifact of the build itself has an empty classifier.
+   */
+  private final Map<String, File> artifacts = new LinkedHashMap<>();
+
   public MavenBuild(MathanLatexMojo mojo) {
     this.mojo = mojo;
   }
@@ -74,17 +82,33 @@ public class MavenBuild implements Build {
   }
 
   @Override
-  public void setArtifact(File artifact) {
+  public synchronized void setArtifact(File artifact) {
     getProject().getArtifact().setFile(artifact);
+    artifacts.put("", artifact);
+  }
+
+  @Override
+  public synchronized void attachArtifact(File artifact, String classifier) {
+    String type = artifact.getName().substring(artifact.getName().lastIndexOf('.') + 1);
+    mojo.getProjectHelper().attachArtifact(getProject(), type, classifier, artifact);
+    artifacts.put(classifier, artifact);
+  }
 
+  /**
+   * Returns the artifacts set or attached by the build.
+   *
+   * @return The artifacts by their classifier. The artifact of the build itself has an empty classifier.
+   */
+  public synchronized Map<String, File> getArtifacts() {
+    return new LinkedHashMap<>(artifacts);
   }
 
   @Override
-  public void resolveDependencies(File workingDirectory) throws LatexExecutionException {
-    List<Dependency> dependencies = getProject().getDependencies();
-    for (Dependency dependency : dependencies) {
-      resolveDependency(dependency, workingDirectory);
+  public synchronized List<File> getDependencyArchives() throws LatexExecutionException {
+    if (dependencyArchives == null) {
+      dependencyArchives = resolveDependencies(getProject().getDependencies());
     }
+    return dependencyArchives;
   }
 
   @Override
@@ -121,62 +145,59 @@ public class MavenBuild implements Build {
     return mojo.getResources();
   }
 
-  private void resolveDependency(Dependency dependency, File workingDirectory) throws LatexExecutionException {
-    Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), dependency.getType(), dependency.getVersion());
-    LocalArtifactRequest localRequest = new LocalArtifactRequest();
-    localRequest.setArtifact(artifact);
-    getLog().info(String.format("[mathan] resolving artifact %s from local", artifact));
-    LocalArtifactResult localResult = getRepoSession().getLocalRepositoryManager().find(getRepoSession(), localRequest);
-    if (localResult.isAvailable()) {
-      try {
-        extractArchive(localResult.getFile(), workingDirectory);
-      } catch (IOException e) {
-        throw new LatexExecutionException(String.format("Could not copy artifact %s", artifact), e);
+  /**
+   * Resolves the archives of the given dependencies. Artifacts available in the local repository are used directly, all other artifacts are resolved with a single request to the remote
+   * repositories.
+   *
+   * @param dependencies The dependencies.
+   * @return The archives in the order of the dependencies.
+   * @throws LatexExecutionException If at least one artifact could not be resolved.
+   */
+  private List<File> resolveDependencies(List<Dependency> dependencies) throws LatexExecutionException {
+    File[] archives = new File[dependencies.size()];
+    List<ArtifactRequest> requests = new ArrayList<>();
+    List<Integer> indices = new ArrayList<>();
+    for (int i = 0; i < dependencies.size(); i++) {
+      Dependency dependency = dependencies.get(i);
+      Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), dependency.getType(), dependency.getVersion());
+      LocalArtifactRequest localRequest = new LocalArtifactRequest();
+      localRequest.setArtifact(artifact);
+      LocalArtifactResult localResult = getRepoSession().getLocalRepositoryManager().find(getRepoSession(), localRequest);
+      if (localResult.isAvailable()) {
+        getLog().debug(String.format("[mathan] resolved artifact %s from local", artifact));
+        archives[i] = localResult.getFile();
+      } else {
+        ArtifactRequest request = new ArtifactRequest();
+        request.setArtifact(artifact);
+        request.setRepositories(getRemoteRepos());
+        requests.add(request);
+        indices.add(i);
       }
-    } else {
-      ArtifactRequest request = new ArtifactRequest();
-      request.setArtifact(artifact);
-      request.setRepositories(getRemoteRepos());
-      getLog().info(String.format("[mathan] resolving artifact %s from %s", artifact, getRemoteRepos()));
-      ArtifactResult result;
+    }
+    if (!requests.isEmpty()) {
+      getLog().info(String.format("[mathan] resolving %s artifacts from %s", requests.size(), getRemoteRepos()));
+      List<ArtifactResult> results;
       try {
-        result = getRepoSystem().resolveArtifact(getRepoSession(), request);
+        results = getRepoSystem().resolveArtifacts(getRepoSession(), requests);
       } catch (ArtifactResolutionException e) {
-        throw new LatexExecutionException(String.format("Could not resolve artifact %s", artifact), e);
+        throw new LatexExecutionException("Could not resolve artifacts", e);
       }
-      if (result.isResolved()) {
-        try {
-          extractArchive(result.getArtifact().getFile(), workingDirectory);
-        } catch (IOException e) {
-          throw new LatexExecutionException(String.format("Could not copy artifact %s", artifact), e);
+      for (int i = 0; i < results.size(); i++) {
+        ArtifactResult result = results.get(i);
+        if (!result.isResolved()) {
+          throw new LatexExecutionException(String.format("Could not resolve artifact %s", result.getRequest().getArtifact()));
         }
-      } else {
-        throw new LatexExecutionException(String.format("Could not resolve artifact %s", artifact));
+        getLog().debug(String.format("[mathan] resolved artifact %s from %s", result.getArtifact(), result.getRepository()));
+        archives[indices.get(i)] = result.getArtifact().getFile();
       }
     }
-
+    getLog().info(String.format("[mathan] resolved %s dependencies", archives.length));
+    return Arrays.asList(archives);
   }
 
-  private void extractArchive(File archive, File workingDirectory) throws IOException {
-    File archiveContent = Utils.extractArchive(archive);
-    FileSetManager fileSetManager = new FileSetManager();
-
-    getResources().setDirectory(archiveContent.getAbsolutePath());
-
-    String[] includedFiles = fileSetManager.getIncludedFiles(getResources());
-    for (String includedFile : includedFiles) {
-      File src = new File(archiveContent, includedFile);
-      File dest = new File(workingDirectory, includedFile);
-      getLog().info(String.format("[mathan] including resource %s", includedFile));
-      if (!dest.getParentFile().exists() && !dest.getParentFile().mkdirs()) {
-        throw new IOException("Could not create directory " + dest.getParentFile().getAbsolutePath());
-      }
-      FileInputStream in = new FileInputStream(src);
-      FileOutputStream out = new FileOutputStream(dest);
-      IOUtils.copy(in, out);
-      in.close();
-      out.close();
-    }
-    FileUtils.deleteDirectory(archiveContent);
+  @Override
+  public ResourceFilter getResourceFilter() {
+    FileSet resources = getResources();
+    return new ResourceFilter(resources.getIncludes(), resources.getExcludes(), resources.isUseDefaultExcludes());
   }
 }
@@ -28,6 +28,11 @@ public class MavenBuildLog implements BuildLog {
     this.log = log;
   }
 
+  @Override
+  public void debug(String message) {
+    this.log.debug(message);
+  }
+
   @Override
   public void error(String message) {
     this.log.error(message);
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 Matthias Hanisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mathan.maven.latex.internal;
+
+import io.mathan.latex.core.LatexExecutionException;
+import io.mathan.latex.core.Utils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Detects if the artifacts of the last build are up to date, so the goal can be skipped. The artifacts are up to date if the configuration of the plugin is unchanged and neither the pom.xml, one
+ * of its parents, a file in the source directory nor an archive of the dependencies was modified after the last build started. Only modification times are compared, so the check does not read any
+ * file. Files outside of the source directory are not checked, so the check has to be enabled explicitly. In an incremental build of an IDE the source directory is not scanned at all if the
+ * {@link BuildContext} reports no changes.
+ *
+ * <p>The configuration, the start time and the artifacts of the last build are stored in a stamp file beside the working directory. The start time is used instead of the modification time of the
+ * artifacts, as an artifact may keep the modification time of its output file or may be provided from a cache.</p>
+ *
+ * @author Matthias Hanisch (reallyinsane)
+ */
+public class StalenessCheck {
+
+  private static final String CONFIGURATION = "configuration";
+  private static final String ARTIFACT = "artifact";
+  private static final String TIME = "time";
+
+  private final MavenBuild build;
+  private final BuildContext buildContext;
+  private final File stampFile;
+  private final String configuration;
+  private final long startTime;
+  private long lastStartTime;
+
+  /**
+   * Creates a check for the given build.
+   *
+   * @param build The build.
+   * @param buildContext The context of an incremental build.
+   * @param stampFile The file storing the configuration and the artifacts of the last build.
+   * @param configuration A description of the configuration of the plugin and the toolchain. Only its checksum is stored.
+   */
+  public StalenessCheck(MavenBuild build, BuildContext buildContext, File stampFile, String configuration) {
+    this.build = build;
+    this.buildContext = buildContext;
+    this.stampFile = stampFile;
+    this.configuration = Utils.checksum(configuration);
+    this.startTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Checks if the artifacts of the last build are up to date. If so, they are set as artifacts of the current build again.
+   *
+   * @param sourceDirectory The source directory.
+   * @return <code>true</code> if the build can be skipped.
+   * @throws LatexExecutionException If the dependencies could not be resolved.
+   */
+  public boolean isUpToDate(File sourceDirectory) throws LatexExecutionException {
+    Map<String, File> artifacts = readStamp();
+    if (artifacts == null || artifacts.isEmpty() || lastStartTime <= 0) {
+      return false;
+    }
+    for (File artifact : artifacts.values()) {
+      if (!artifact.isFile()) {
+        return false;
+      }
+    }
+    for (MavenProject project = build.getProject(); project != null; project = project.getParent()) {
+      File pom = project.getFile();
+      if (pom != null && pom.lastModified() >= lastStartTime) {
+        return false;
+      }
+    }
+    for (File archive : build.getDependencyArchives()) {
+      if (archive == null || archive.lastModified() >= lastStartTime) {
+        return false;
+      }
+    }
+    if (!buildContext.isIncremental() || buildContext.hasDelta(sourceDirectory)) {
+      File newer = findNewer(sourceDirectory, lastStartTime);
+      if (newer != null) {
+        build.getLog().debug(String.format("[mathan] %s changed since the last build", newer.getAbsolutePath()));
+        return false;
+      }
+    }
+    artifacts.forEach((classifier, artifact) -> {
+      if (classifier.isEmpty()) {
+        build.setArtifact(artifact);
+      } else {
+        build.attachArtifact(artifact, classifier);
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Stores the configuration, the start time and the artifacts of the current build and notifies the {@link BuildContext} about the artifacts.
+   */
+  public void store() {
+    Map<String, File> artifacts = build.getArtifacts();
+    List<String> lines = new ArrayList<>();
+    lines.add(CONFIGURATION + "\t" + configuration);
+    lines.add(TIME + "\t" + startTime);
+    artifacts.forEach((classifier, artifact) -> {
+      lines.add(String.join("\t", ARTIFACT, classifier, artifact.getAbsolutePath()));
+      buildContext.refresh(artifact);
+    });
+    try {
+      FileUtils.writeLines(stampFile, StandardCharsets.UTF_8.name(), lines, "\n");
+    } catch (IOException e) {
+      build.getLog().warn(String.format("Could not write %s", stampFile.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Deletes the stamp file, so the next build is not skipped.
+   */
+  public void reset() {
+    FileUtils.deleteQuietly(stampFile);
+  }
+
+  /**
+   * Reads the artifacts of the last build by their classifier and the start time of the last build.
+   *
+   * @return The artifacts or <code>null</code> if there is no stamp file or the configuration changed.
+   */
+  private Map<String, File> readStamp() {
+    if (!stampFile.isFile()) {
+      return null;
+    }
+    Map<String, File> artifacts = new LinkedHashMap<>();
+    String stored = null;
+    try {
+      for (String line : FileUtils.readLines(stampFile, StandardCharsets.UTF_8)) {
+        String[] values = line.split("\t", -1);
+        if (values.length == 2 && CONFIGURATION.equals(values[0])) {
+          stored = values[1];
+        } else if (values.length == 2 && TIME.equals(values[0])) {
+          lastStartTime = Long.parseLong(values[1]);
+        } else if (values.length == 3 && ARTIFACT.equals(values[0])) {
+          artifacts.put(values[1], new File(values[2]));
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      build.getLog().warn(String.format("Could not read %s", stampFile.getAbsolutePath()), e);
+      return null;
+    }
+    return configuration.equals(stored) ? artifacts : null;
+  }
+
+  /**
+   * Returns a file or directory in the given directory modified at or after the given time.
+   */
+  private static File findNewer(File directory, long time) {
+    if (directory.lastModified() >= time) {
+      return directory;
+    }
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return null;
+    }
+    for (File file : files) {
+      File newer = file.isDirectory() ? findNewer(file, time) : file.lastModified() >= time ? file : null;
+      if (newer != null) {
+        return newer;
+      }
+    }
+    return null;
+  }
+}